@@ -0,0 +1,81 @@
+/*
+ * Copyright 2026 Bloomreach
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onehippo.forge.ipfilter.common;
+
+import java.util.Collections;
+import java.util.Set;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Filter serving a fixed configuration, without repository.
+ */
+final class BenchmarkFilter extends BaseIpFilter {
+
+    /**
+     * Ignored paths of the configuration shipped in <code>ip-filter-module.yaml</code>
+     */
+    static final Set<String> SHIPPED_IGNORED_PATHS = ImmutableSet.of("/autoreload", "/ping/.*", "^/_rp/.*",
+            "^/_cmsinternal/.*", "^/_targeting/.*", "^/webfiles/.*", "^/binaries/.*", "^/images/.*", ".*\\.css",
+            ".*\\.js", ".*\\.ico");
+
+    private final RuleSnapshot snapshot;
+
+    BenchmarkFilter(final RuleSnapshot snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    @Override
+    protected Status authenticate(final AuthObject authObject, final HttpServletRequest request) {
+        return Status.UNAUTHORIZED;
+    }
+
+    @Override
+    protected void initializeConfigManager() {
+        configLoader = new IpFilterConfigLoader() {
+            @Override
+            public boolean needReloading() {
+                return false;
+            }
+
+            @Override
+            public RuleSnapshot getSnapshot() {
+                return snapshot;
+            }
+        };
+        initialized = true;
+    }
+
+    @Override
+    protected String getDisabledPropertyName() {
+        return "benchmark.ipfilter.disabled";
+    }
+
+    @Override
+    public void destroy() {
+        super.destroy();
+        if (configLoader != null) {
+            configLoader.shutdown();
+        }
+    }
+
+    static RuleSnapshot snapshot(final AuthObject authObject) {
+        return new RuleSnapshot(1L, Collections.singletonMap("benchmark", authObject),
+                Collections.singleton(IpFilterConstants.HEADER_X_FORWARDED_HOST));
+    }
+}
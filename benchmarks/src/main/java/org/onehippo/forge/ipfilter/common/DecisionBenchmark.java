@@ -0,0 +1,155 @@
+/*
+ * Copyright 2026 Bloomreach
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onehippo.forge.ipfilter.common;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.servlet.FilterChain;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * A complete decision of the filter, from reading the host to writing a refusal, against a synthetic configuration of
+ * {@link #CONFIGURATION_SETS} configuration sets. The host names are spread over the sets, every set has the given
+ * number of IP ranges. Half of the requests come from a whitelisted IP, the others are refused.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g"})
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class DecisionBenchmark {
+
+    static final int CONFIGURATION_SETS = 4;
+
+    private static final int REQUESTS = 4096;
+    private static final FilterChain CHAIN = (request, response) -> {
+    };
+
+    /**
+     * Number of IP ranges per configuration set
+     */
+    @Param({"10", "1000", "100000"})
+    public int ranges;
+
+    /**
+     * Number of host names of all configuration sets together
+     */
+    @Param({"1", "100", "5000"})
+    public int hosts;
+
+    @Param({"true", "false"})
+    public boolean cacheEnabled;
+
+    private BenchmarkFilter filter;
+    private BenchmarkRequest[] requests;
+    private BenchmarkResponse response;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        final Random random = new Random(42L);
+        final List<String> hostnames = new ArrayList<>(hosts);
+        for (int i = 0; i < hosts; i++) {
+            hostnames.add("site-" + i + ".example.com");
+        }
+
+        final Map<String, AuthObject> authObjects = new LinkedHashMap<>();
+        final List<List<Integer>> networks = new ArrayList<>();
+        final int sets = Math.min(CONFIGURATION_SETS, hosts);
+        for (int set = 0; set < sets; set++) {
+            final Set<String> setHosts = new HashSet<>();
+            for (int i = set; i < hosts; i += sets) {
+                setHosts.add(hostnames.get(i));
+            }
+            final Set<String> setRanges = new HashSet<>();
+            final List<Integer> setNetworks = new ArrayList<>();
+            while (setRanges.size() < ranges) {
+                if (random.nextInt(10) == 0) {
+                    setRanges.add(String.format("2001:db8:%x:%x::/%d", random.nextInt(0x10000),
+                            random.nextInt(0x10000), 48 + random.nextInt(81)));
+                } else {
+                    final int prefix = 16 + random.nextInt(17);
+                    final int network = random.nextInt() & (int) (0xFFFFFFFF00000000L >>> prefix);
+                    if (setRanges.add(ipv4(network) + '/' + prefix)) {
+                        setNetworks.add(network);
+                    }
+                }
+            }
+            networks.add(setNetworks);
+            authObjects.put("set-" + set, AuthObject.builder()
+                    .ignoredPaths(BenchmarkFilter.SHIPPED_IGNORED_PATHS)
+                    .hosts(setHosts)
+                    .ranges(setRanges)
+                    .cacheEnabled(cacheEnabled)
+                    .name("set-" + set)
+                    .build());
+        }
+        filter = new BenchmarkFilter(new RuleSnapshot(1L, authObjects,
+                ImmutableSet.of(IpFilterConstants.HEADER_X_FORWARDED_HOST)));
+
+        requests = new BenchmarkRequest[REQUESTS];
+        for (int i = 0; i < REQUESTS; i++) {
+            final int host = random.nextInt(hosts);
+            final List<Integer> setNetworks = networks.get(host % sets);
+            final int client = random.nextBoolean() && !setNetworks.isEmpty()
+                    ? setNetworks.get(random.nextInt(setNetworks.size()))
+                    : random.nextInt();
+            requests[i] = new BenchmarkRequest("10.0.0.2", "/site/news/" + i + ".html")
+                    .header(IpFilterConstants.HEADER_X_FORWARDED_HOST, hostnames.get(host))
+                    .header(IpFilterConstants.HEADER_X_FORWARDED_FOR, ipv4(client) + ", 10.0.0.1");
+        }
+        response = new BenchmarkResponse();
+    }
+
+    @TearDown
+    public void tearDown() {
+        filter.destroy();
+    }
+
+    @Benchmark
+    public int doFilter() throws Exception {
+        final BenchmarkRequest request = requests[next++ & (REQUESTS - 1)];
+        response.setStatus(BenchmarkResponse.SC_OK);
+        filter.doFilter(request, response, CHAIN);
+        return response.getStatusCode();
+    }
+
+    private static String ipv4(final int address) {
+        return (address >>> 24) + "." + (address >>> 16 & 0xFF) + '.' + (address >>> 8 & 0xFF) + '.' + (address & 0xFF);
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2026 Bloomreach
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onehippo.forge.ipfilter.common;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Checking the ignored paths of the shipped configuration, for a path that matches none of them, a path that matches
+ * the first patterns and one that only matches at the end of the list.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class IgnoredPathBenchmark {
+
+    @Param({"/site/news/2026/10/article.html", "/ping/health", "/site/skin/screen.css"})
+    public String path;
+
+    private BenchmarkFilter filter;
+    private AuthObject authObject;
+    private BenchmarkRequest request;
+
+    @Setup
+    public void setUp() {
+        authObject = AuthObject.builder().ignoredPaths(BenchmarkFilter.SHIPPED_IGNORED_PATHS)
+                .hosts(Collections.singleton("localhost")).ranges(Collections.singleton("127.0.0.1"))
+                .allowCmsUsers(true).build();
+        filter = new BenchmarkFilter(BenchmarkFilter.snapshot(authObject));
+        request = new BenchmarkRequest("127.0.0.1", path);
+    }
+
+    @TearDown
+    public void tearDown() {
+        filter.destroy();
+    }
+
+    @Benchmark
+    public boolean isIgnored() {
+        return filter.isIgnored(request, authObject);
+    }
+}
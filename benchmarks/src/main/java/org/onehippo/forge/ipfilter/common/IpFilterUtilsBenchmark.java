@@ -0,0 +1,82 @@
+/*
+ * Copyright 2026 Bloomreach
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onehippo.forge.ipfilter.common;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Reading the client IP from forwarded-for headers as proxies and load balancers send them, and normalizing host
+ * names.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class IpFilterUtilsBenchmark {
+
+    /**
+     * Value of X-Forwarded-For: the client, then every proxy in between
+     */
+    @Param({
+            "203.0.113.7",
+            "203.0.113.7, 10.0.0.1, 10.0.0.2",
+            " , 203.0.113.7,10.0.0.1, 10.0.0.2, 10.0.0.3, 10.0.0.4",
+            "2001:db8:abcd:12::1, 2001:db8::2"
+    })
+    public String forwardedFor;
+
+    @Param({"www.example.com", "www.example.com.."})
+    public String hostname;
+
+    private BenchmarkRequest request;
+    private final ParsedIp clientIp = new ParsedIp();
+
+    @Setup
+    public void setUp() {
+        request = new BenchmarkRequest("10.0.0.9", "/site")
+                .header(IpFilterConstants.HEADER_X_FORWARDED_FOR, forwardedFor);
+    }
+
+    @Benchmark
+    public String getIp() {
+        return IpFilterUtils.getIp(request, IpFilterConstants.HEADER_X_FORWARDED_FOR);
+    }
+
+    @Benchmark
+    public ParsedIp getClientIp() {
+        IpFilterUtils.getClientIp(request, IpFilterConstants.HEADER_X_FORWARDED_FOR, clientIp);
+        return clientIp;
+    }
+
+    @Benchmark
+    public String normalizeHostname() {
+        return IpFilterUtils.normalizeHostname(hostname);
+    }
+}
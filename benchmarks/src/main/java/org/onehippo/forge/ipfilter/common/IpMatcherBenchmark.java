@@ -0,0 +1,89 @@
+/*
+ * Copyright 2026 Bloomreach
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onehippo.forge.ipfilter.common;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Matching a single IP range, from the textual address as {@link IpMatcher#matches(String)} does and from an address
+ * that was parsed before.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class IpMatcherBenchmark {
+
+    private final IpMatcher ipv4Range = IpMatcher.valueOf("192.168.0.0/16");
+    private final IpMatcher ipv6Range = IpMatcher.valueOf("2001:db8:abcd::/48");
+
+    private String ipv4 = "192.168.12.34";
+    private String ipv4Outside = "203.0.113.7";
+    private String ipv6 = "2001:db8:abcd:12::1";
+    private String ipv6Outside = "2001:db8:ffff::1";
+
+    private final ParsedIp parsedIpv4 = new ParsedIp();
+    private final ParsedIp parsedIpv6 = new ParsedIp();
+
+    @Setup
+    public void setUp() {
+        IpAddressParser.parse(ipv4, parsedIpv4);
+        IpAddressParser.parse(ipv6, parsedIpv6);
+    }
+
+    @Benchmark
+    public boolean ipv4() {
+        return ipv4Range.matches(ipv4);
+    }
+
+    @Benchmark
+    public boolean ipv4Outside() {
+        return ipv4Range.matches(ipv4Outside);
+    }
+
+    @Benchmark
+    public boolean ipv4Parsed() {
+        return ipv4Range.matches(parsedIpv4);
+    }
+
+    @Benchmark
+    public boolean ipv6() {
+        return ipv6Range.matches(ipv6);
+    }
+
+    @Benchmark
+    public boolean ipv6Outside() {
+        return ipv6Range.matches(ipv6Outside);
+    }
+
+    @Benchmark
+    public boolean ipv6Parsed() {
+        return ipv6Range.matches(parsedIpv6);
+    }
+}
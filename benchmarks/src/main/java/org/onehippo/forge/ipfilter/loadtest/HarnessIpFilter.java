@@ -0,0 +1,53 @@
+/*
+ * Copyright 2026 Bloomreach
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onehippo.forge.ipfilter.loadtest;
+
+import javax.jcr.RepositoryException;
+
+import org.hippoecm.repository.HippoRepository;
+import org.onehippo.forge.ipfilter.common.IpFilterConfigLoader;
+import org.onehippo.forge.ipfilter.hst.IpFilter;
+
+/**
+ * Site filter with a given configuration loader and repository instead of the ones of the HST container.
+ */
+final class HarnessIpFilter extends IpFilter {
+
+    private final IpFilterConfigLoader loader;
+    private final HippoRepository repository;
+
+    HarnessIpFilter(final IpFilterConfigLoader loader, final HippoRepository repository) {
+        this.loader = loader;
+        this.repository = repository;
+    }
+
+    @Override
+    protected void initializeConfigManager() {
+        configLoader = loader;
+        initialized = true;
+    }
+
+    @Override
+    protected HippoRepository resolveRepository(final String address) throws RepositoryException {
+        return repository;
+    }
+
+    @Override
+    public void destroy() {
+        super.destroy();
+        loader.shutdown();
+    }
+}
@@ -0,0 +1,394 @@
+/*
+ * Copyright 2026 Bloomreach
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onehippo.forge.ipfilter.loadtest;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.jcr.ItemNotFoundException;
+import javax.jcr.LoginException;
+import javax.jcr.Node;
+import javax.jcr.NodeIterator;
+import javax.jcr.PathNotFoundException;
+import javax.jcr.Property;
+import javax.jcr.Repository;
+import javax.jcr.Session;
+import javax.jcr.Value;
+import javax.jcr.observation.Event;
+
+import org.hippoecm.repository.HippoRepository;
+
+/**
+ * Stand-in for a JCR repository holding a tree of nodes with string, boolean and long properties in memory. The JCR
+ * interfaces are implemented by dynamic proxies covering what the configuration loader and the filters read; other
+ * methods throw {@link UnsupportedOperationException}.
+ * <p>
+ * The tree can be changed while sessions read it: reads copy what they return under the same lock changes take.
+ */
+final class InMemoryRepository {
+
+    private final Object lock = new Object();
+    private final MemoryNode root = new MemoryNode(null, "");
+
+    /**
+     * Set a property, creating the node and its ancestors if needed.
+     *
+     * @param value a String, String[], Boolean or Long
+     */
+    void setProperty(final String path, final String name, final Object value) {
+        synchronized (lock) {
+            getOrAddNode(path).properties.put(name, value instanceof String[] ? ((String[]) value).clone() : value);
+        }
+    }
+
+    Object getProperty(final String path, final String name) {
+        synchronized (lock) {
+            final MemoryNode node = find(path);
+            final Object value = node == null ? null : node.properties.get(name);
+            return value instanceof String[] ? ((String[]) value).clone() : value;
+        }
+    }
+
+    void removeNode(final String path) {
+        synchronized (lock) {
+            final MemoryNode node = find(path);
+            if (node != null && node.parent != null) {
+                node.parent.children.remove(node.name);
+            }
+        }
+    }
+
+    /**
+     * @return repository accepting any credentials, as used by the configuration loader
+     */
+    Repository getRepository() {
+        return proxy(Repository.class, (method, args) -> {
+            if ("login".equals(method.getName())) {
+                return session("system");
+            }
+            return unsupported(Repository.class, method);
+        });
+    }
+
+    /**
+     * @param users        passwords by user name
+     * @param loginLatency time a login takes, in microseconds
+     * @return repository authenticating the given users, as used by the site filter
+     */
+    HippoRepository getHippoRepository(final Map<String, String> users, final long loginLatency) {
+        return proxy(HippoRepository.class, (method, args) -> {
+            if ("login".equals(method.getName()) && args != null && args.length == 2) {
+                final String username = (String) args[0];
+                final String password = users.get(username);
+                if (loginLatency > 0L) {
+                    TimeUnit.MICROSECONDS.sleep(loginLatency);
+                }
+                if (password == null || !password.equals(new String((char[]) args[1]))) {
+                    throw new LoginException("Invalid credentials for " + username);
+                }
+                return session(username);
+            }
+            if ("close".equals(method.getName())) {
+                return null;
+            }
+            return unsupported(HippoRepository.class, method);
+        });
+    }
+
+    static Event event(final int type, final String path) {
+        return proxy(Event.class, (method, args) -> {
+            switch (method.getName()) {
+                case "getType":
+                    return type;
+                case "getPath":
+                    return path;
+                case "getIdentifier":
+                    return path;
+                case "getUserID":
+                    return "system";
+                case "getDate":
+                    return System.currentTimeMillis();
+                default:
+                    return unsupported(Event.class, method);
+            }
+        });
+    }
+
+    private Session session(final String userId) {
+        final boolean[] live = {true};
+        return proxy(Session.class, (method, args) -> {
+            switch (method.getName()) {
+                case "getNode":
+                case "getItem": {
+                    final MemoryNode node = findLocked((String) args[0]);
+                    if (node == null) {
+                        throw new PathNotFoundException((String) args[0]);
+                    }
+                    return node(node);
+                }
+                case "nodeExists":
+                case "itemExists":
+                    return findLocked((String) args[0]) != null;
+                case "getRootNode":
+                    return node(root);
+                case "getUserID":
+                    return userId;
+                case "isLive":
+                    return live[0];
+                case "logout":
+                    live[0] = false;
+                    return null;
+                default:
+                    return unsupported(Session.class, method);
+            }
+        });
+    }
+
+    private Node node(final MemoryNode node) {
+        return proxy(Node.class, (method, args) -> {
+            switch (method.getName()) {
+                case "getName":
+                    return node.name;
+                case "getPath":
+                case "getIdentifier":
+                    return node.getPath();
+                case "isNode":
+                    return true;
+                case "getParent":
+                    if (node.parent == null) {
+                        throw new ItemNotFoundException("Root has no parent");
+                    }
+                    return node(node.parent);
+                case "getDepth":
+                    return node.getDepth();
+                case "getNodes": {
+                    final List<Node> children = new ArrayList<>();
+                    synchronized (lock) {
+                        for (MemoryNode child : node.children.values()) {
+                            children.add(node(child));
+                        }
+                    }
+                    return nodeIterator(children);
+                }
+                case "hasNodes":
+                    synchronized (lock) {
+                        return !node.children.isEmpty();
+                    }
+                case "getNode":
+                case "hasNode": {
+                    final MemoryNode child;
+                    synchronized (lock) {
+                        child = node.resolve((String) args[0]);
+                    }
+                    if ("hasNode".equals(method.getName())) {
+                        return child != null;
+                    }
+                    if (child == null) {
+                        throw new PathNotFoundException(node.getPath() + '/' + args[0]);
+                    }
+                    return node(child);
+                }
+                case "hasProperty":
+                    synchronized (lock) {
+                        return node.properties.containsKey((String) args[0]);
+                    }
+                case "getProperty": {
+                    final String name = (String) args[0];
+                    final Object value;
+                    synchronized (lock) {
+                        value = node.properties.get(name);
+                    }
+                    if (value == null) {
+                        throw new PathNotFoundException(node.getPath() + '/' + name);
+                    }
+                    return property(node, name, value);
+                }
+                default:
+                    return unsupported(Node.class, method);
+            }
+        });
+    }
+
+    private Property property(final MemoryNode owner, final String name, final Object value) {
+        return proxy(Property.class, (method, args) -> {
+            switch (method.getName()) {
+                case "getName":
+                    return name;
+                case "getPath":
+                    return owner.getPath() + '/' + name;
+                case "isNode":
+                    return false;
+                case "getParent":
+                    return node(owner);
+                case "isMultiple":
+                    return value instanceof String[];
+                case "getValues": {
+                    final Object[] values = value instanceof String[] ? (String[]) value : new Object[]{value};
+                    final Value[] result = new Value[values.length];
+                    for (int i = 0; i < values.length; i++) {
+                        result[i] = value(values[i]);
+                    }
+                    return result;
+                }
+                case "getValue":
+                    return value(value instanceof String[] ? ((String[]) value)[0] : value);
+                case "getString":
+                case "getBoolean":
+                case "getLong":
+                    return convert(method.getName(), value instanceof String[] ? ((String[]) value)[0] : value);
+                default:
+                    return unsupported(Property.class, method);
+            }
+        });
+    }
+
+    private static Value value(final Object value) {
+        return proxy(Value.class, (method, args) -> {
+            switch (method.getName()) {
+                case "getString":
+                case "getBoolean":
+                case "getLong":
+                    return convert(method.getName(), value);
+                default:
+                    return unsupported(Value.class, method);
+            }
+        });
+    }
+
+    private static NodeIterator nodeIterator(final List<Node> nodes) {
+        final Iterator<Node> iterator = nodes.iterator();
+        final long[] position = {0L};
+        return proxy(NodeIterator.class, (method, args) -> {
+            switch (method.getName()) {
+                case "hasNext":
+                    return iterator.hasNext();
+                case "next":
+                case "nextNode":
+                    position[0]++;
+                    return iterator.next();
+                case "getSize":
+                    return (long) nodes.size();
+                case "getPosition":
+                    return position[0];
+                default:
+                    return unsupported(NodeIterator.class, method);
+            }
+        });
+    }
+
+    private static Object convert(final String getter, final Object value) {
+        switch (getter) {
+            case "getBoolean":
+                return value instanceof Boolean ? value : Boolean.parseBoolean(String.valueOf(value));
+            case "getLong":
+                return value instanceof Long ? value : Long.parseLong(String.valueOf(value));
+            default:
+                return String.valueOf(value);
+        }
+    }
+
+    private MemoryNode findLocked(final String path) {
+        synchronized (lock) {
+            return find(path);
+        }
+    }
+
+    private MemoryNode find(final String path) {
+        return "/".equals(path) ? root : root.resolve(path.startsWith("/") ? path.substring(1) : path);
+    }
+
+    private MemoryNode getOrAddNode(final String path) {
+        MemoryNode node = root;
+        for (String name : path.split("/")) {
+            if (!name.isEmpty()) {
+                final MemoryNode parent = node;
+                node = parent.children.computeIfAbsent(name, key -> new MemoryNode(parent, key));
+            }
+        }
+        return node;
+    }
+
+    private interface Handler {
+        Object invoke(Method method, Object[] args) throws Throwable;
+    }
+
+    private static <T> T proxy(final Class<T> type, final Handler handler) {
+        final InvocationHandler invocationHandler = (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                switch (method.getName()) {
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    default:
+                        return type.getSimpleName() + '@' + Integer.toHexString(System.identityHashCode(proxy));
+                }
+            }
+            return handler.invoke(method, args);
+        };
+        return type.cast(Proxy.newProxyInstance(InMemoryRepository.class.getClassLoader(), new Class<?>[]{type},
+                invocationHandler));
+    }
+
+    private static Object unsupported(final Class<?> type, final Method method) {
+        throw new UnsupportedOperationException(type.getSimpleName() + '.' + method.getName());
+    }
+
+    private static final class MemoryNode {
+
+        private final MemoryNode parent;
+        private final String name;
+        private final Map<String, MemoryNode> children = new LinkedHashMap<>();
+        private final Map<String, Object> properties = new LinkedHashMap<>();
+
+        private MemoryNode(final MemoryNode parent, final String name) {
+            this.parent = parent;
+            this.name = name;
+        }
+
+        private String getPath() {
+            if (parent == null) {
+                return "/";
+            }
+            return parent.parent == null ? '/' + name : parent.getPath() + '/' + name;
+        }
+
+        private int getDepth() {
+            return parent == null ? 0 : parent.getDepth() + 1;
+        }
+
+        private MemoryNode resolve(final String relativePath) {
+            MemoryNode node = this;
+            for (String name : relativePath.split("/")) {
+                if (name.isEmpty()) {
+                    continue;
+                }
+                node = node.children.get(name);
+                if (node == null) {
+                    return null;
+                }
+            }
+            return node;
+        }
+    }
+}
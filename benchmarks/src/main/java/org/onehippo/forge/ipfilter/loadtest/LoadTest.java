@@ -0,0 +1,447 @@
+/*
+ * Copyright 2026 Bloomreach
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onehippo.forge.ipfilter.loadtest;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import javax.jcr.Session;
+import javax.jcr.SimpleCredentials;
+import javax.jcr.observation.Event;
+import javax.management.ObjectName;
+import jakarta.servlet.Filter;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.apache.catalina.Context;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.tomcat.util.descriptor.web.FilterDef;
+import org.apache.tomcat.util.descriptor.web.FilterMap;
+import org.onehippo.cms7.services.HippoServiceRegistry;
+import org.onehippo.forge.ipfilter.cms.CmsIpFilter;
+import org.onehippo.forge.ipfilter.cms.IpFilterService;
+import org.onehippo.forge.ipfilter.cms.IpFilterServiceImpl;
+import org.onehippo.forge.ipfilter.common.BaseIpFilter;
+import org.onehippo.forge.ipfilter.common.IpFilterConstants;
+import org.onehippo.forge.ipfilter.hst.HstConfigLoader;
+
+/**
+ * Load test of a filter in an embedded Tomcat, with its configuration in an {@link InMemoryRepository}. Client threads
+ * send a mix of {@link Traffic} while the configuration keeps changing, then throughput and latency percentiles are
+ * reported per kind of traffic. Everything runs in one JVM without network access.
+ * <p>
+ * Options are given as <code>--name=value</code>:
+ * <ul>
+ *     <li><code>filter</code>: <code>hst</code> (default) for the site filter, <code>cms</code> for the CMS filter</li>
+ *     <li><code>threads</code>: client threads, 32</li>
+ *     <li><code>warmup</code>, <code>duration</code>: seconds of warmup and of measurement, 10 and 30</li>
+ *     <li><code>hosts</code>: configuration sets with one host name each, 100</li>
+ *     <li><code>ranges</code>: IP ranges per configuration set, 100</li>
+ *     <li><code>users</code>: repository users sending basic authentication, 50</li>
+ *     <li><code>login-micros</code>: time a repository login takes, 2000</li>
+ *     <li><code>change-interval</code>: milliseconds between bursts of configuration changes, 200, 0 for none</li>
+ *     <li><code>change-burst</code>: changes per burst, each with its own event, 10</li>
+ * </ul>
+ */
+public final class LoadTest {
+
+    static final String CONFIG_PATH = "/hippo:configuration/hippo:modules/ipfilter/hippo:moduleconfig";
+
+    private static final String FILTER_NAME = "ipfilter";
+    private static final String[] IGNORED_PATHS = {"/autoreload", "/ping/.*", "^/_rp/.*", "^/_cmsinternal/.*",
+            "^/_targeting/.*", "^/webfiles/.*", "^/binaries/.*", "^/images/.*", ".*\\.css", ".*\\.js", ".*\\.ico"};
+    private static final String[] IGNORED_REQUEST_PATHS = {"/ping/health", "/binaries/logo.png",
+            "/site/skin/screen.css", "/webfiles/site/script.js"};
+
+    /**
+     * Kinds of requests with their share of the traffic in percent.
+     */
+    enum Traffic {
+        /**
+         * From an IP in the ranges of the host
+         */
+        ALLOWED_IP(40),
+        /**
+         * From an IP outside the ranges, without credentials
+         */
+        DENIED_IP(20),
+        /**
+         * To an ignored path from an IP outside the ranges
+         */
+        IGNORED_PATH(15),
+        /**
+         * With valid credentials from an IP outside the ranges
+         */
+        BASIC_AUTH(15),
+        /**
+         * With a wrong password from an IP outside the ranges
+         */
+        BAD_CREDENTIALS(5),
+        /**
+         * For a host without configuration
+         */
+        UNKNOWN_HOST(5);
+
+        private final int share;
+
+        Traffic(final int share) {
+            this.share = share;
+        }
+    }
+
+    private final Map<String, String> options;
+    private final int threads;
+    private final int warmupSeconds;
+    private final int durationSeconds;
+    private final int hosts;
+    private final int ranges;
+    private final int users;
+    private final long loginMicros;
+    private final long changeIntervalMillis;
+    private final int changeBurst;
+
+    private final InMemoryRepository repository = new InMemoryRepository();
+    private final List<int[]> allowedIps = new ArrayList<>();
+    private final Map<String, String> passwords = new HashMap<>();
+    private final Traffic[] trafficTable = new Traffic[100];
+    private final AtomicLong changes = new AtomicLong();
+
+    private volatile LoadTestResults results = new LoadTestResults();
+    private volatile boolean running = true;
+
+    private LoadTest(final Map<String, String> options) {
+        this.options = options;
+        threads = option("threads", 32);
+        warmupSeconds = option("warmup", 10);
+        durationSeconds = option("duration", 30);
+        hosts = Math.max(1, option("hosts", 100));
+        ranges = Math.max(1, option("ranges", 100));
+        users = Math.max(1, option("users", 50));
+        loginMicros = option("login-micros", 2000);
+        changeIntervalMillis = option("change-interval", 200);
+        changeBurst = Math.max(1, option("change-burst", 10));
+
+        int index = 0;
+        for (Traffic traffic : Traffic.values()) {
+            for (int i = 0; i < traffic.share; i++) {
+                trafficTable[index++] = traffic;
+            }
+        }
+    }
+
+    public static void main(final String[] args) throws Exception {
+        final Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || arg.indexOf('=') < 0) {
+                throw new IllegalArgumentException("Options are given as --name=value, not " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        new LoadTest(options).run();
+    }
+
+    private int option(final String name, final int defaultValue) {
+        final String value = options.get(name);
+        return value == null ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    private void run() throws Exception {
+        createConfiguration();
+        for (int i = 0; i < users; i++) {
+            passwords.put("user-" + i, "secret-" + i);
+        }
+
+        final boolean cms = "cms".equals(options.getOrDefault("filter", "hst"));
+        final BaseIpFilter filter;
+        final Consumer<String> notifier;
+        IpFilterService service = null;
+        if (cms) {
+            final Session session = repository.getRepository().login(new SimpleCredentials("system", new char[0]));
+            final IpFilterService cmsService = new IpFilterServiceImpl(session);
+            HippoServiceRegistry.register(cmsService, IpFilterService.class);
+            service = cmsService;
+            filter = new CmsIpFilter();
+            // the repository module only flags a change, whatever the number of events
+            notifier = path -> cmsService.setConfigurationChanged(true);
+        } else {
+            final HstConfigLoader loader = new HstConfigLoader();
+            loader.setRepository(repository.getRepository());
+            loader.setCredentials(new SimpleCredentials("system", new char[0]));
+            loader.setConfigurationLocation(CONFIG_PATH);
+            filter = new HarnessIpFilter(loader, repository.getHippoRepository(passwords, loginMicros));
+            notifier = path -> loader.invalidate(InMemoryRepository.event(Event.PROPERTY_CHANGED, path));
+        }
+
+        final Tomcat tomcat = startTomcat(filter);
+        final int port = tomcat.getConnector().getLocalPort();
+        final ExecutorService clientExecutor = Executors.newFixedThreadPool(Math.max(2, threads / 4));
+        final HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(clientExecutor)
+                .build();
+
+        final List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            final Thread worker = new Thread(() -> sendRequests(client, port), "loadtest-client-" + i);
+            worker.setDaemon(true);
+            workers.add(worker);
+        }
+        final Thread changer = new Thread(() -> changeConfiguration(notifier), "loadtest-changes");
+        changer.setDaemon(true);
+
+        System.out.printf("Filter %s at port %d: %d client threads, %d hosts with %d ranges, %d users, "
+                        + "logins of %d us, %d changes every %d ms%n", cms ? "cms" : "hst", port, threads, hosts,
+                ranges, users, loginMicros, changeBurst, changeIntervalMillis);
+        workers.forEach(Thread::start);
+        if (changeIntervalMillis > 0L) {
+            changer.start();
+        }
+
+        TimeUnit.SECONDS.sleep(warmupSeconds);
+        final ObjectName statistics = new ObjectName("org.onehippo.forge.ipfilter:type=IpFilter,name="
+                + ObjectName.quote("/" + FILTER_NAME));
+        final long reloadsBefore = reloads(statistics, "Reloads");
+        final long changesBefore = changes.get();
+        filter.getMetrics().resetLatencies();
+        results = new LoadTestResults();
+        final long start = System.nanoTime();
+
+        TimeUnit.SECONDS.sleep(durationSeconds);
+        final LoadTestResults measured = results;
+        final long elapsedNanos = System.nanoTime() - start;
+        running = false;
+        final long reloadCount = reloads(statistics, "Reloads") - reloadsBefore;
+        final long reloadFailures = reloads(statistics, "ReloadFailures");
+        final Map<String, Long> stageLatencies = filter.getMetrics().getLatencyPercentiles();
+
+        changer.interrupt();
+        for (Thread worker : workers) {
+            worker.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        clientExecutor.shutdownNow();
+        tomcat.stop();
+        tomcat.destroy();
+        if (service != null) {
+            HippoServiceRegistry.unregister(service, IpFilterService.class);
+        }
+
+        measured.print(System.out, elapsedNanos);
+        System.out.printf("%nConfiguration changes: %,d, reloads: %,d, failed reloads: %,d%n",
+                changes.get() - changesBefore, reloadCount, reloadFailures);
+        System.out.printf("%nFilter stages (us)%n%-16s %10s %10s %10s %10s %10s%n",
+                "stage", "count", "p50", "p99", "p999", "max");
+        for (String stage : Arrays.asList("HOST", "IGNORE", "IP", "AUTHENTICATION", "DENIAL")) {
+            System.out.printf("%-16s %,10d %10.1f %10.1f %10.1f %10.1f%n", stage,
+                    stageLatencies.get(stage + ".count"),
+                    stageLatencies.get(stage + ".p50") / 1000.0, stageLatencies.get(stage + ".p99") / 1000.0,
+                    stageLatencies.get(stage + ".p999") / 1000.0, stageLatencies.get(stage + ".max") / 1000.0);
+        }
+    }
+
+    private static long reloads(final ObjectName statistics, final String attribute) {
+        try {
+            return (Long) ManagementFactory.getPlatformMBeanServer().getAttribute(statistics, attribute);
+        } catch (Exception e) {
+            return -1L;
+        }
+    }
+
+    private void createConfiguration() {
+        repository.setProperty(CONFIG_PATH, IpFilterConstants.CONFIG_FORWARDED_HOST_HEADER,
+                new String[]{IpFilterConstants.HEADER_X_FORWARDED_HOST});
+        final Random random = new Random(42L);
+        for (int host = 0; host < hosts; host++) {
+            final String path = hostPath(host);
+            final String[] hostRanges = new String[ranges];
+            final int[] hostIps = new int[ranges];
+            for (int i = 0; i < ranges; i++) {
+                // ranges in 10.0.0.0/8, clients outside the ranges use documentation addresses
+                final int prefix = 24 + random.nextInt(9);
+                final int network = (10 << 24 | random.nextInt(1 << 24)) & (int) (0xFFFFFFFF00000000L >>> prefix);
+                hostRanges[i] = ipv4(network) + '/' + prefix;
+                hostIps[i] = network;
+            }
+            allowedIps.add(hostIps);
+            repository.setProperty(path, IpFilterConstants.CONFIG_HOSTNAME, new String[]{hostName(host)});
+            repository.setProperty(path, IpFilterConstants.CONFIG_ALLOWED_IP_RANGES, hostRanges);
+            repository.setProperty(path, IpFilterConstants.CONFIG_IGNORED_PATHS, IGNORED_PATHS);
+            // odd hosts refuse requests from outside the ranges, even hosts ask for credentials
+            repository.setProperty(path, IpFilterConstants.CONFIG_ALLOW_CMS_USERS, host % 2 == 0);
+            repository.setProperty(path, IpFilterConstants.CONFIG_CACHE_ENABLED, Boolean.TRUE);
+            repository.setProperty(path, IpFilterConstants.CONFIG_FORWARDED_FOR_HEADER,
+                    IpFilterConstants.HEADER_X_FORWARDED_FOR);
+        }
+    }
+
+    private Tomcat startTomcat(final Filter filter) throws Exception {
+        final Tomcat tomcat = new Tomcat();
+        tomcat.setBaseDir(Files.createTempDirectory("ipfilter-loadtest").toString());
+        tomcat.setPort(0);
+        tomcat.getConnector().setProperty("maxThreads", String.valueOf(Math.max(200, threads * 2)));
+
+        final Context context = tomcat.addContext("", null);
+        Tomcat.addServlet(context, "ok", new OkServlet());
+        context.addServletMappingDecoded("/*", "ok");
+
+        final FilterDef filterDef = new FilterDef();
+        filterDef.setFilterName(FILTER_NAME);
+        filterDef.setFilterClass(filter.getClass().getName());
+        filterDef.setFilter(filter);
+        context.addFilterDef(filterDef);
+        final FilterMap filterMap = new FilterMap();
+        filterMap.setFilterName(FILTER_NAME);
+        filterMap.addURLPattern("/*");
+        context.addFilterMap(filterMap);
+
+        tomcat.start();
+        return tomcat;
+    }
+
+    private void sendRequests(final HttpClient client, final int port) {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final String base = "http://localhost:" + port;
+        while (running) {
+            final Traffic traffic = trafficTable[random.nextInt(trafficTable.length)];
+            final HttpRequest request = createRequest(traffic, base, random);
+            final LoadTestResults current = results;
+            final long start = System.nanoTime();
+            try {
+                final HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                current.record(traffic, response.statusCode(), System.nanoTime() - start);
+            } catch (IOException e) {
+                current.error(traffic);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private HttpRequest createRequest(final Traffic traffic, final String base, final Random random) {
+        int host = random.nextInt(hosts);
+        String hostName = hostName(host);
+        String path = "/site/page-" + random.nextInt(1000);
+        String clientIp = "203.0.113." + random.nextInt(256);
+        String authorization = null;
+        switch (traffic) {
+            case ALLOWED_IP:
+                final int[] ips = allowedIps.get(host);
+                clientIp = ipv4(ips[random.nextInt(ips.length)]);
+                break;
+            case IGNORED_PATH:
+                path = IGNORED_REQUEST_PATHS[random.nextInt(IGNORED_REQUEST_PATHS.length)];
+                break;
+            case BASIC_AUTH:
+            case BAD_CREDENTIALS:
+                host -= host % 2;
+                hostName = hostName(host);
+                final int user = random.nextInt(users);
+                final String password = traffic == Traffic.BASIC_AUTH ? "secret-" + user : "wrong";
+                authorization = "Basic " + Base64.getEncoder()
+                        .encodeToString(("user-" + user + ':' + password).getBytes(StandardCharsets.UTF_8));
+                clientIp = "192.0.2." + random.nextInt(256);
+                break;
+            case UNKNOWN_HOST:
+                hostName = "unknown-" + random.nextInt(100_000) + ".example.org";
+                break;
+            default:
+                break;
+        }
+        final HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(base + path))
+                .timeout(Duration.ofSeconds(30))
+                .header(IpFilterConstants.HEADER_X_FORWARDED_HOST, hostName)
+                .header(IpFilterConstants.HEADER_X_FORWARDED_FOR, clientIp + ", 10.255.0.1");
+        if (authorization != null) {
+            builder.header(IpFilterConstants.HEADER_AUTHORIZATION, authorization);
+        }
+        return builder.GET().build();
+    }
+
+    /**
+     * Add or remove IP ranges outside the ranges clients use, so decisions stay the same while the configuration
+     * changes.
+     */
+    private void changeConfiguration(final Consumer<String> notifier) {
+        final Random random = new Random();
+        while (running) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(changeIntervalMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+            for (int i = 0; i < changeBurst; i++) {
+                final String path = hostPath(random.nextInt(hosts));
+                final String[] current = (String[]) repository.getProperty(path,
+                        IpFilterConstants.CONFIG_ALLOWED_IP_RANGES);
+                final String[] changed;
+                if (current.length > ranges) {
+                    changed = Arrays.copyOf(current, current.length - 1);
+                } else {
+                    changed = Arrays.copyOf(current, current.length + 1);
+                    changed[current.length] = "198.18." + random.nextInt(256) + '.' + random.nextInt(256);
+                }
+                repository.setProperty(path, IpFilterConstants.CONFIG_ALLOWED_IP_RANGES, changed);
+                changes.incrementAndGet();
+                notifier.accept(path + '/' + IpFilterConstants.CONFIG_ALLOWED_IP_RANGES);
+            }
+        }
+    }
+
+    private static String hostPath(final int host) {
+        return CONFIG_PATH + "/host-" + host;
+    }
+
+    private static String hostName(final int host) {
+        return "site-" + host + ".example.com";
+    }
+
+    private static String ipv4(final int address) {
+        return (address >>> 24) + "." + (address >>> 16 & 0xFF) + '.' + (address >>> 8 & 0xFF) + '.' + (address & 0xFF);
+    }
+
+    private static final class OkServlet extends HttpServlet {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected void doGet(final HttpServletRequest request, final HttpServletResponse response) throws IOException {
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.getWriter().write("ok");
+        }
+    }
+}
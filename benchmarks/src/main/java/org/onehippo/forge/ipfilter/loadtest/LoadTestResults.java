@@ -0,0 +1,93 @@
+/*
+ * Copyright 2026 Bloomreach
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onehippo.forge.ipfilter.loadtest;
+
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.onehippo.forge.ipfilter.common.LatencyHistogram;
+import org.onehippo.forge.ipfilter.loadtest.LoadTest.Traffic;
+
+/**
+ * Latencies and response statuses of the requests of a load test, per kind of traffic.
+ */
+final class LoadTestResults {
+
+    private static final Traffic[] TRAFFIC = Traffic.values();
+
+    private final LatencyHistogram total = new LatencyHistogram();
+    private final LatencyHistogram[] latencies = new LatencyHistogram[TRAFFIC.length];
+    private final ConcurrentMap<String, LongAdder> statuses = new ConcurrentHashMap<>();
+    private final LongAdder[] errors = new LongAdder[TRAFFIC.length];
+
+    LoadTestResults() {
+        for (int i = 0; i < TRAFFIC.length; i++) {
+            latencies[i] = new LatencyHistogram();
+            errors[i] = new LongAdder();
+        }
+    }
+
+    void record(final Traffic traffic, final int status, final long nanos) {
+        total.record(nanos);
+        latencies[traffic.ordinal()].record(nanos);
+        statuses.computeIfAbsent(traffic.name() + ':' + status, key -> new LongAdder()).increment();
+    }
+
+    void error(final Traffic traffic) {
+        errors[traffic.ordinal()].increment();
+    }
+
+    void print(final PrintStream out, final long elapsedNanos) {
+        final double seconds = elapsedNanos / 1e9;
+        out.printf("%n%-16s %10s %10s %9s %9s %9s %9s  %s%n", "traffic", "requests", "req/s", "p50 ms", "p99 ms",
+                "p999 ms", "max ms", "statuses");
+        for (Traffic traffic : TRAFFIC) {
+            print(out, traffic.name(), latencies[traffic.ordinal()].snapshot(), seconds, statuses(traffic));
+        }
+        print(out, "TOTAL", total.snapshot(), seconds, "");
+    }
+
+    private static void print(final PrintStream out, final String name, final LatencyHistogram.Snapshot snapshot,
+                              final double seconds, final String statuses) {
+        out.printf("%-16s %,10d %,10.0f %9.3f %9.3f %9.3f %9.3f  %s%n", name, snapshot.getCount(),
+                snapshot.getCount() / seconds, millis(snapshot.getValueAtPercentile(50.0)),
+                millis(snapshot.getValueAtPercentile(99.0)), millis(snapshot.getValueAtPercentile(99.9)),
+                millis(snapshot.getMax()), statuses);
+    }
+
+    private String statuses(final Traffic traffic) {
+        final Map<String, Long> counts = new TreeMap<>();
+        final String prefix = traffic.name() + ':';
+        for (Map.Entry<String, LongAdder> entry : statuses.entrySet()) {
+            if (entry.getKey().startsWith(prefix)) {
+                counts.put(entry.getKey().substring(prefix.length()), entry.getValue().sum());
+            }
+        }
+        final long errorCount = errors[traffic.ordinal()].sum();
+        if (errorCount > 0L) {
+            counts.put("errors", errorCount);
+        }
+        return counts.toString();
+    }
+
+    private static double millis(final long nanos) {
+        return nanos / 1e6;
+    }
+}
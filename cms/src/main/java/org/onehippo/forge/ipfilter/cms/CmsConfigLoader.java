@@ -1,5 +1,5 @@
 /*
- * Copyright 2017-2020 Bloomreach
+ * Copyright 2017-2026 Bloomreach
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -35,8 +35,9 @@ public class CmsConfigLoader extends IpFilterConfigLoader {
     @Override
     public boolean needReloading() {
         if (service.configurationChanged()) {
-            needRefresh = true;
             service.setConfigurationChanged(false);
+            // reconfigurations during an import or bootstrap are reloaded together
+            collectEvent();
         }
         return needRefresh;
 
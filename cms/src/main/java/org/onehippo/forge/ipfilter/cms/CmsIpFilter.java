@@ -1,5 +1,5 @@
 /*
- * Copyright 2017-2020 Bloomreach
+ * Copyright 2017-2026 Bloomreach
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -57,6 +57,15 @@ public class CmsIpFilter extends BaseIpFilter {
         }
     }
 
+    @Override
+    public void destroy() {
+        super.destroy();
+        if (configLoader != null) {
+            // created by this filter
+            configLoader.shutdown();
+        }
+    }
+
     @Override
     protected String getDisabledPropertyName() {
         return SYSTEM_PROPERTY_DISABLED;
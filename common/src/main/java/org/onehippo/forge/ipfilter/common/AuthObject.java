@@ -1,5 +1,5 @@
 /*
- * Copyright 2017-2020 Bloomreach
+ * Copyright 2017-2026 Bloomreach
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,8 @@
 package org.onehippo.forge.ipfilter.common;
 
 import com.google.common.base.Strings;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
@@ -25,7 +27,9 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
 
 import org.slf4j.Logger;
@@ -35,50 +39,295 @@ public class AuthObject {
 
     private static final Logger log = LoggerFactory.getLogger(AuthObject.class);
 
+    private static final AtomicInteger IDS = new AtomicInteger();
+
+    private final int id;
     private final boolean valid;
     private final boolean cacheEnabled;
     private final boolean mustMatchAll;
     private final boolean allowCmsUsers;
     private final String forwardedForHeader;
+    private final int forwardedForHop;
     private final Set<String> hosts;
     private final Set<String> ranges;
     private final Set<String> ignoredPaths;
     private final Set<IpMatcher> ipMatchers;
+    private final IpRangeTrie ipRangeTrie;
     private final Map<String, Set<String>> ignoredHeaders;
+    private final Map<String, Set<String>> ignoredHeadersIgnoreCase;
+    private final Map<String, Set<String>> ignoredHeaderTokens;
+    private final IgnoredHeaderMatcher ignoredHeaderMatcher;
+    private CredentialCache credentialCache;
+    private final String name;
     private final List<Pattern> hostPatterns;
-    private final List<Pattern> ignoredPathPatterns;
+    // only for the deprecated getter, requests are matched by the ignored path matcher
+    private final Supplier<List<Pattern>> ignoredPathPatterns;
+    private final IgnoredPathMatcher ignoredPathMatcher;
     public static final AuthObject INVALID = new AuthObject();
 
     private AuthObject() {
+        this.id = 0;
+        this.name = "none";
         this.valid = false;
         this.cacheEnabled = true;
         this.ignoredPaths = Collections.emptySet();
         this.hosts = Collections.emptySet();
         this.ranges = Collections.emptySet();
         this.ignoredHeaders = Collections.emptyMap();
-        this.ignoredPathPatterns = Collections.emptyList();
+        this.ignoredHeadersIgnoreCase = Collections.emptyMap();
+        this.ignoredHeaderTokens = Collections.emptyMap();
+        this.ignoredHeaderMatcher = IgnoredHeaderMatcher.EMPTY;
+        this.credentialCache = new CredentialCache(0, 0);
+        this.ignoredPathPatterns = Collections::emptyList;
+        this.ignoredPathMatcher = IgnoredPathMatcher.EMPTY;
         this.hostPatterns = Collections.emptyList();
         this.ipMatchers = Collections.emptySet();
+        this.ipRangeTrie = IpRangeTrie.EMPTY;
         this.allowCmsUsers = false;
         this.mustMatchAll = false;
         this.forwardedForHeader = IpFilterConstants.HEADER_X_FORWARDED_FOR;
+        this.forwardedForHop = 0;
     }
 
-    public AuthObject(final Set<String> ignoredPaths, final Set<String> hosts,
-                      final Set<String> ranges, final Map<String, Set<String>> ignoredHeaders,
-                      final boolean allowCmsUsers, final String forwardHeader, final boolean cacheEnabled, final boolean mustMatchAll) {
+    private AuthObject(final Builder builder) {
+        this.id = IDS.incrementAndGet();
+        this.name = Strings.isNullOrEmpty(builder.name) ? "config-" + id : builder.name;
         this.valid = true;
-        this.cacheEnabled = cacheEnabled;
-        this.ignoredPaths = ignoredPaths;
-        this.hosts = hosts;
-        this.ranges = ranges;
-        this.allowCmsUsers = allowCmsUsers;
-        this.mustMatchAll = mustMatchAll;
-        this.forwardedForHeader = forwardHeader;
-        this.ignoredHeaders = ImmutableMap.copyOf(ignoredHeaders);
-        this.ignoredPathPatterns = parsePatterns();
+        this.cacheEnabled = builder.cacheEnabled;
+        this.ignoredPaths = builder.ignoredPaths;
+        this.hosts = builder.hosts;
+        this.ranges = builder.ranges;
+        this.allowCmsUsers = builder.allowCmsUsers;
+        this.mustMatchAll = builder.mustMatchAll;
+        this.forwardedForHeader = builder.forwardedForHeader;
+        this.forwardedForHop = builder.forwardedForHop;
+        this.ignoredHeaders = ImmutableMap.copyOf(builder.ignoredHeaders);
+        this.ignoredHeadersIgnoreCase = ImmutableMap.copyOf(builder.ignoredHeadersIgnoreCase);
+        this.ignoredHeaderTokens = ImmutableMap.copyOf(builder.ignoredHeaderTokens);
+        this.ignoredHeaderMatcher = IgnoredHeaderMatcher.compile(this.ignoredHeaders, this.ignoredHeadersIgnoreCase,
+                this.ignoredHeaderTokens);
+        this.credentialCache = new CredentialCache(builder.userCacheSize, builder.userCacheExpireMinutes);
+        this.ignoredPathPatterns = Suppliers.memoize(this::parsePatterns);
+        this.ignoredPathMatcher = IgnoredPathMatcher.compile(ignoredPaths);
         this.hostPatterns = parseHostPatterns();
         this.ipMatchers = parseIpMatchers();
+        this.ipRangeTrie = IpRangeTrie.compile(ipMatchers);
+    }
+
+    /**
+     * @deprecated use {@link #builder()}
+     */
+    @Deprecated
+    public AuthObject(final Set<String> ignoredPaths, final Set<String> hosts,
+                      final Set<String> ranges, final Map<String, Set<String>> ignoredHeaders,
+                      final boolean allowCmsUsers, final String forwardHeader, final boolean cacheEnabled, final boolean mustMatchAll) {
+        this(builder()
+                .ignoredPaths(ignoredPaths)
+                .hosts(hosts)
+                .ranges(ranges)
+                .ignoredHeaders(ignoredHeaders)
+                .allowCmsUsers(allowCmsUsers)
+                .forwardedForHeader(forwardHeader)
+                .cacheEnabled(cacheEnabled)
+                .mustMatchAll(mustMatchAll));
+    }
+
+    /**
+     * @return builder of a configuration set, with host names to be set
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Builder of a configuration set. Everything except the host names is optional.
+     */
+    public static final class Builder {
+
+        private Set<String> ignoredPaths = Collections.emptySet();
+        private Set<String> hosts;
+        private Set<String> ranges = Collections.emptySet();
+        private Map<String, Set<String>> ignoredHeaders = Collections.emptyMap();
+        private Map<String, Set<String>> ignoredHeadersIgnoreCase = Collections.emptyMap();
+        private Map<String, Set<String>> ignoredHeaderTokens = Collections.emptyMap();
+        private boolean allowCmsUsers;
+        private String forwardedForHeader = IpFilterConstants.HEADER_X_FORWARDED_FOR;
+        private int forwardedForHop;
+        private boolean cacheEnabled = true;
+        private boolean mustMatchAll;
+        private long userCacheSize = IpFilterConstants.DEFAULT_USER_CACHE_SIZE;
+        private long userCacheExpireMinutes = IpFilterConstants.CACHE_EXPIRE_IN_MINUTES;
+        private String name;
+
+        private Builder() {
+        }
+
+        /**
+         * @param ignoredPaths regular expressions of paths that are not filtered
+         */
+        public Builder ignoredPaths(final Set<String> ignoredPaths) {
+            this.ignoredPaths = ignoredPaths;
+            return this;
+        }
+
+        /**
+         * @param hosts host names, which may be regular expressions
+         */
+        public Builder hosts(final Set<String> hosts) {
+            this.hosts = hosts;
+            return this;
+        }
+
+        /**
+         * @param ranges allowed IP addresses and ranges
+         */
+        public Builder ranges(final Set<String> ranges) {
+            this.ranges = ranges;
+            return this;
+        }
+
+        /**
+         * @param ignoredHeaders ignored headers with values that are matched case sensitively
+         */
+        public Builder ignoredHeaders(final Map<String, Set<String>> ignoredHeaders) {
+            this.ignoredHeaders = ignoredHeaders;
+            return this;
+        }
+
+        /**
+         * @param ignoredHeadersIgnoreCase ignored headers with values that are matched case insensitively
+         */
+        public Builder ignoredHeadersIgnoreCase(final Map<String, Set<String>> ignoredHeadersIgnoreCase) {
+            this.ignoredHeadersIgnoreCase = ignoredHeadersIgnoreCase;
+            return this;
+        }
+
+        /**
+         * @param ignoredHeaderTokens ignored headers with values that also match a comma separated token of the header
+         */
+        public Builder ignoredHeaderTokens(final Map<String, Set<String>> ignoredHeaderTokens) {
+            this.ignoredHeaderTokens = ignoredHeaderTokens;
+            return this;
+        }
+
+        public Builder allowCmsUsers(final boolean allowCmsUsers) {
+            this.allowCmsUsers = allowCmsUsers;
+            return this;
+        }
+
+        /**
+         * @param forwardedForHeader header holding the client IP address
+         */
+        public Builder forwardedForHeader(final String forwardedForHeader) {
+            this.forwardedForHeader = forwardedForHeader;
+            return this;
+        }
+
+        /**
+         * @param forwardedForHop hop of the forwarded-for header holding the client IP address, counting from 0 for
+         *                        the first hop, or negative to count from the end, -1 being the hop added by the
+         *                        nearest proxy
+         */
+        public Builder forwardedForHop(final int forwardedForHop) {
+            this.forwardedForHop = forwardedForHop;
+            return this;
+        }
+
+        public Builder cacheEnabled(final boolean cacheEnabled) {
+            this.cacheEnabled = cacheEnabled;
+            return this;
+        }
+
+        public Builder mustMatchAll(final boolean mustMatchAll) {
+            this.mustMatchAll = mustMatchAll;
+            return this;
+        }
+
+        /**
+         * @param size          maximum number of cached credentials
+         * @param expireMinutes minutes after which cached credentials must be authenticated again
+         */
+        public Builder userCache(final long size, final long expireMinutes) {
+            this.userCacheSize = size;
+            this.userCacheExpireMinutes = expireMinutes;
+            return this;
+        }
+
+        /**
+         * @param name name of the configuration set, reported in metrics
+         */
+        public Builder name(final String name) {
+            this.name = name;
+            return this;
+        }
+
+        public AuthObject build() {
+            return new AuthObject(this);
+        }
+    }
+
+    /**
+     * @return id unique for this instance, used as cache key. It acts as the generation of the configuration set: a
+     * reload keeps an unchanged configuration set and its id, a changed one gets a new id, so cache entries of the old
+     * configuration are no longer found and simply expire.
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * @return true if the other configuration set was parsed from the same configuration, so it decides all requests
+     * the same way
+     */
+    public boolean sameConfiguration(final AuthObject other) {
+        if (other == this) {
+            return true;
+        }
+        return other != null
+                && valid == other.valid
+                && cacheEnabled == other.cacheEnabled
+                && mustMatchAll == other.mustMatchAll
+                && allowCmsUsers == other.allowCmsUsers
+                && Objects.equals(name, other.name)
+                && Objects.equals(forwardedForHeader, other.forwardedForHeader)
+                && forwardedForHop == other.forwardedForHop
+                && hosts.equals(other.hosts)
+                && ranges.equals(other.ranges)
+                && ignoredPaths.equals(other.ignoredPaths)
+                && ignoredHeaders.equals(other.ignoredHeaders)
+                && ignoredHeadersIgnoreCase.equals(other.ignoredHeadersIgnoreCase)
+                && ignoredHeaderTokens.equals(other.ignoredHeaderTokens)
+                && credentialCache.getMaximumSize() == other.credentialCache.getMaximumSize()
+                && credentialCache.getExpireMinutes() == other.credentialCache.getExpireMinutes();
+    }
+
+    /**
+     * @return true if the other configuration set authenticates the same way, so credentials it accepted are valid for
+     * this one as well
+     */
+    public boolean sameAuthentication(final AuthObject other) {
+        return other != null
+                && valid == other.valid
+                && allowCmsUsers == other.allowCmsUsers
+                && mustMatchAll == other.mustMatchAll
+                && cacheEnabled == other.cacheEnabled
+                && credentialCache.getMaximumSize() == other.credentialCache.getMaximumSize()
+                && credentialCache.getExpireMinutes() == other.credentialCache.getExpireMinutes();
+    }
+
+    /**
+     * Continue with the cached credentials of the configuration set this one replaces. Only to be called before this
+     * configuration set is published.
+     */
+    void takeCredentialCache(final AuthObject previous) {
+        credentialCache = previous.credentialCache;
+    }
+
+    /**
+     * @return name of the configuration set
+     */
+    public String getName() {
+        return name;
     }
 
     public boolean isValid() {
@@ -95,27 +344,82 @@ public class AuthObject {
     }
 
 
+    /**
+     * @return configured host names, which may be regular expressions
+     */
+    public Set<String> getHosts() {
+        return hosts;
+    }
+
     public List<Pattern> getHostPatterns() {
         return hostPatterns;
     }
 
+    /**
+     * @return ignored paths compiled one by one, on first use
+     * @deprecated requests are matched by {@link #getIgnoredPathMatcher()}
+     */
+    @Deprecated
     public List<Pattern> getIgnoredPathPatterns() {
-        return ignoredPathPatterns;
+        return ignoredPathPatterns.get();
+    }
+
+    /**
+     * @return all ignored path patterns compiled into one matcher, used for matching request paths
+     */
+    public IgnoredPathMatcher getIgnoredPathMatcher() {
+        return ignoredPathMatcher;
     }
 
     public Set<IpMatcher> getIpMatchers() {
         return ipMatchers;
     }
 
+    /**
+     * @return all IP matchers compiled into one trie, used for matching client addresses
+     */
+    public IpRangeTrie getIpRangeTrie() {
+        return ipRangeTrie;
+    }
+
     public String getForwardedForHeader() {
         return forwardedForHeader;
     }
 
+    /**
+     * @return hop of the forwarded-for header holding the client IP address, see {@link IpAddressParser#parseHop}
+     */
+    public int getForwardedForHop() {
+        return forwardedForHop;
+    }
+
 
     public Map<String, Set<String>> getIgnoredHeaders() {
         return ignoredHeaders;
     }
 
+    public Map<String, Set<String>> getIgnoredHeadersIgnoreCase() {
+        return ignoredHeadersIgnoreCase;
+    }
+
+    public Map<String, Set<String>> getIgnoredHeaderTokens() {
+        return ignoredHeaderTokens;
+    }
+
+    /**
+     * @return all ignored headers compiled into one lookup table, used for matching request headers
+     */
+    public IgnoredHeaderMatcher getIgnoredHeaderMatcher() {
+        return ignoredHeaderMatcher;
+    }
+
+    /**
+     * @return cache of credentials successfully authenticated for this configuration set
+     */
+    public CredentialCache getCredentialCache() {
+        return credentialCache;
+    }
+
     public boolean isCacheEnabled() {
         return cacheEnabled;
     }
@@ -167,8 +471,8 @@ public class AuthObject {
                 final Pattern pattern = Pattern.compile(ignored);
                 patterns.add(pattern);
             } catch (Exception e) {
-                //noinspection StringConcatenationArgumentToLogCall
-                log.error("Error compiling path pattern " + ignored, e);
+                // already reported when the ignored path matcher was compiled
+                log.debug("Error compiling path pattern {}", ignored, e);
             }
         }
         return ImmutableList.copyOf(patterns);
@@ -178,18 +482,24 @@ public class AuthObject {
     @Override
     public String toString() {
         return "AuthObject{" +
-                "valid=" + valid +
+                "id=" + id +
+                ", name=" + name +
+                ", valid=" + valid +
                 ", cacheEnabled=" + cacheEnabled +
+                ", userCacheSize=" + credentialCache.getMaximumSize() +
+                ", userCacheExpireMinutes=" + credentialCache.getExpireMinutes() +
                 ", mustMatchAll=" + mustMatchAll +
                 ", allowCmsUsers=" + allowCmsUsers +
                 ", forwardedForHeader='" + forwardedForHeader + '\'' +
+                ", forwardedForHop=" + forwardedForHop +
                 ", hosts=" + hosts +
                 ", ranges=" + ranges +
                 ", ignoredPaths=" + ignoredPaths +
                 ", ipMatchers=" + ipMatchers +
                 ", ignoredHeaders=" + ignoredHeaders +
+                ", ignoredHeadersIgnoreCase=" + ignoredHeadersIgnoreCase +
+                ", ignoredHeaderTokens=" + ignoredHeaderTokens +
                 ", hostPatterns=" + hostPatterns +
-                ", ignoredPathPatterns=" + ignoredPathPatterns +
                 '}';
     }
 }
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2026 Bloomreach
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onehippo.forge.ipfilter.common;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import javax.crypto.spec.SecretKeySpec;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+/**
+ * Issues and verifies short lived tokens proving a successful authentication, signed with a shared secret.
+ * <p>
+ * A token is <code>expiry.signature</code>, with the expiry in epoch seconds and the signature an HMAC-SHA256 of the
+ * scope and the expiry. Verification needs no state besides the secret, so tokens are valid on every node sharing it
+ * and survive restarts.
+ */
+public final class AuthTokenSigner {
+
+    public static final int MIN_SECRET_LENGTH = 16;
+    // tokens may come from nodes with a clock running somewhat ahead
+    private static final long MAX_CLOCK_SKEW_SECONDS = 60L;
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final HashFunction hmac;
+    private final long validitySeconds;
+    private final LongSupplier clock;
+
+    /**
+     * @param secret   shared secret, at least {@link #MIN_SECRET_LENGTH} characters
+     * @param validity time a token is valid
+     * @param unit     unit of the validity
+     */
+    public AuthTokenSigner(final String secret, final long validity, final TimeUnit unit) {
+        this(secret, validity, unit, () -> TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()));
+    }
+
+    AuthTokenSigner(final String secret, final long validity, final TimeUnit unit, final LongSupplier clock) {
+        if (secret == null || secret.length() < MIN_SECRET_LENGTH) {
+            throw new IllegalArgumentException("Secret must have at least " + MIN_SECRET_LENGTH + " characters");
+        }
+        this.hmac = Hashing.hmacSha256(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        this.validitySeconds = unit.toSeconds(validity);
+        this.clock = clock;
+    }
+
+    /**
+     * @param scope what the token gives access to
+     * @return new token for the scope
+     */
+    public String issue(final String scope) {
+        final long expiry = clock.getAsLong() + validitySeconds;
+        return expiry + "." + ENCODER.encodeToString(sign(scope, expiry));
+    }
+
+    /**
+     * @return TRUE if the token was issued for the scope and has not expired
+     */
+    public boolean verify(final String token, final String scope) {
+        if (token == null) {
+            return false;
+        }
+        final int dot = token.indexOf('.');
+        if (dot < 1 || dot > 19) {
+            return false;
+        }
+        final long expiry;
+        final byte[] signature;
+        try {
+            expiry = Long.parseLong(token.substring(0, dot));
+            signature = DECODER.decode(token.substring(dot + 1));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        final long now = clock.getAsLong();
+        if (expiry <= now || expiry > now + validitySeconds + MAX_CLOCK_SKEW_SECONDS) {
+            return false;
+        }
+        // constant time, so the signature can't be guessed byte by byte
+        return MessageDigest.isEqual(sign(scope, expiry), signature);
+    }
+
+    public long getValiditySeconds() {
+        return validitySeconds;
+    }
+
+    private byte[] sign(final String scope, final long expiry) {
+        return hmac.newHasher()
+                .putString(scope, StandardCharsets.UTF_8)
+                .putByte((byte) 0)
+                .putLong(expiry)
+                .hash()
+                .asBytes();
+    }
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2018-2022 Bloomreach
+ * Copyright 2018-2026 Bloomreach
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,16 +16,8 @@
 package org.onehippo.forge.ipfilter.common;
 
 import java.io.IOException;
-import java.util.Collection;
 import java.util.Enumeration;
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import jakarta.servlet.Filter;
 import jakarta.servlet.FilterChain;
@@ -41,11 +33,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Strings;
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
-import com.google.common.util.concurrent.ListenableFuture;
-import com.google.common.util.concurrent.ListenableFutureTask;
+import com.google.common.cache.CacheStats;
+
+import org.onehippo.forge.ipfilter.common.IpFilterMetrics.Stage;
 
 public abstract class BaseIpFilter implements Filter {
 
@@ -53,58 +43,81 @@ public abstract class BaseIpFilter implements Filter {
 
     protected IpFilterConfigLoader configLoader;
 
-    private LoadingCache<String, AuthObject> cache;
+    private volatile HostCache hostCache = new HostCache(0);
 
     protected boolean initialized;
 
-    protected final LoadingCache<String, Boolean> userCache = CacheBuilder.newBuilder()
-            .maximumSize(IpFilterConstants.CACHE_SITE)
-            .expireAfterWrite(IpFilterConstants.CACHE_EXPIRE_IN_MINUTES, TimeUnit.MINUTES)
-            .build(new CacheLoader<String, Boolean>() {
-                @Override
-                public Boolean load(final String key) throws Exception {
-                    // we manage cache ourselves
-                    return false;
-                }
-            });
-
-    private final LoadingCache<IpHostPair, Boolean> ipCache = CacheBuilder.newBuilder()
-            .maximumSize(IpFilterConstants.CACHE_SITE)
-            .expireAfterWrite(IpFilterConstants.CACHE_EXPIRE_IN_MINUTES, TimeUnit.MINUTES)
-            .build(new CacheLoader<IpHostPair, Boolean>() {
-                @Override
-                public Boolean load(final IpHostPair key) throws Exception {
-                    // we manage cache ourselves
-                    return false;
-                }
-            });
+    private static final int IP_ALLOWED = 1;
+    private static final Status[] STATUSES = Status.values();
+
+    private static final ThreadLocal<ParsedIp> CLIENT_IP = ThreadLocal.withInitial(ParsedIp::new);
+
+    private IpDecisionCache ipCache = new IpDecisionCache(IpFilterConstants.DEFAULT_IP_CACHE_SIZE,
+            IpFilterConstants.CACHE_EXPIRE_IN_MINUTES, TimeUnit.MINUTES);
+
+    // only decisions that don't depend on credentials
+    private IpDecisionCache denyCache = new IpDecisionCache(IpFilterConstants.DEFAULT_DENY_CACHE_SIZE,
+            IpFilterConstants.DEFAULT_DENY_CACHE_EXPIRE_IN_MINUTES, TimeUnit.MINUTES);
 
     private String realm;
+    private int retryAfterSeconds = IpFilterConstants.DEFAULT_RETRY_AFTER_SECONDS;
+
+    // optional signed cookie proving a successful authentication, on every node sharing the secret
+    private AuthTokenSigner authTokens;
+    private String authTokenCookie = IpFilterConstants.DEFAULT_AUTH_TOKEN_COOKIE;
+    // behind a proxy terminating TLS the request itself isn't secure, so this is configured
+    private boolean authTokenSecure = true;
+
+    private final IpFilterMetrics metrics = new IpFilterMetrics();
+    private final IpFilterStatistics statistics = new IpFilterStatistics(this);
 
     @Override
     public void init(final FilterConfig filterConfig) throws ServletException {
         realm = IpFilterUtils.getParameter(filterConfig, IpFilterConstants.REALM_PARAM, realm);
-
-        cache = CacheBuilder.newBuilder()
-                .maximumSize(1)
-                .expireAfterWrite(IpFilterConstants.CACHE_EXPIRES_IN_DAYS, TimeUnit.DAYS)
-                .build(new CacheLoader<String, AuthObject>() {
-                    private final ExecutorService executor = Executors.newFixedThreadPool(1);
-
-                    public AuthObject load(String key) {
-                        return loadIpRules(key);
-                    }
-
-                    @Override
-                    public ListenableFuture<AuthObject> reload(final String key, final AuthObject oldValue) throws Exception {
-                        final ListenableFutureTask<AuthObject> task = ListenableFutureTask.create(() -> load(key));
-                        executor.execute(task);
-                        return task;
-                    }
-                });
+        retryAfterSeconds = IpFilterUtils.getIntParameter(filterConfig, IpFilterConstants.RETRY_AFTER_PARAM,
+                IpFilterConstants.DEFAULT_RETRY_AFTER_SECONDS);
+        final int ipCacheSize = IpFilterUtils.getIntParameter(filterConfig, IpFilterConstants.IP_CACHE_SIZE_PARAM,
+                IpFilterConstants.DEFAULT_IP_CACHE_SIZE);
+        final int ipCacheExpire = IpFilterUtils.getIntParameter(filterConfig, IpFilterConstants.IP_CACHE_EXPIRE_PARAM,
+                IpFilterConstants.CACHE_EXPIRE_IN_MINUTES);
+        ipCache = new IpDecisionCache(Math.max(1, ipCacheSize), ipCacheExpire, TimeUnit.MINUTES);
+        final int denyCacheSize = IpFilterUtils.getIntParameter(filterConfig, IpFilterConstants.DENY_CACHE_SIZE_PARAM,
+                IpFilterConstants.DEFAULT_DENY_CACHE_SIZE);
+        final int denyCacheExpire = IpFilterUtils.getIntParameter(filterConfig, IpFilterConstants.DENY_CACHE_EXPIRE_PARAM,
+                IpFilterConstants.DEFAULT_DENY_CACHE_EXPIRE_IN_MINUTES);
+        denyCache = new IpDecisionCache(Math.max(1, denyCacheSize), denyCacheExpire, TimeUnit.MINUTES);
+        initAuthTokens(filterConfig);
+        statistics.register(getStatisticsName(filterConfig));
         requestData();
     }
 
+    private String getStatisticsName(final FilterConfig filterConfig) {
+        final String filterName = Strings.isNullOrEmpty(filterConfig.getFilterName())
+                ? getClass().getSimpleName() : filterConfig.getFilterName();
+        final String contextPath = filterConfig.getServletContext() == null
+                ? null : filterConfig.getServletContext().getContextPath();
+        return Strings.nullToEmpty(contextPath) + '/' + filterName;
+    }
+
+    private void initAuthTokens(final FilterConfig filterConfig) {
+        final String secret = IpFilterUtils.getParameter(filterConfig, IpFilterConstants.AUTH_TOKEN_SECRET_PARAM, null);
+        if (Strings.isNullOrEmpty(secret)) {
+            return;
+        }
+        if (secret.length() < AuthTokenSigner.MIN_SECRET_LENGTH) {
+            log.error("{} must have at least {} characters, authentication tokens are disabled",
+                    IpFilterConstants.AUTH_TOKEN_SECRET_PARAM, AuthTokenSigner.MIN_SECRET_LENGTH);
+            return;
+        }
+        final int minutes = IpFilterUtils.getIntParameter(filterConfig, IpFilterConstants.AUTH_TOKEN_MINUTES_PARAM,
+                IpFilterConstants.DEFAULT_AUTH_TOKEN_MINUTES);
+        authTokenCookie = IpFilterUtils.getParameter(filterConfig, IpFilterConstants.AUTH_TOKEN_COOKIE_PARAM,
+                IpFilterConstants.DEFAULT_AUTH_TOKEN_COOKIE);
+        authTokenSecure = Boolean.parseBoolean(IpFilterUtils.getParameter(filterConfig,
+                IpFilterConstants.AUTH_TOKEN_SECURE_PARAM, "true"));
+        authTokens = new AuthTokenSigner(secret, Math.max(1, minutes), TimeUnit.MINUTES);
+    }
+
     @Override
     public void doFilter(final ServletRequest request, final ServletResponse response, final FilterChain chain) throws IOException, ServletException {
 
@@ -124,11 +137,18 @@ public abstract class BaseIpFilter implements Filter {
             return;
         }
 
-        if (configLoader.needReloading()) {
-            invalidateCaches();
-        }
+        // reloads in the background, requests keep using the last loaded configuration meanwhile
+        configLoader.refresh();
+
+        // one configuration generation for the whole request
+        final RuleSnapshot snapshot = configLoader.getSnapshot();
+        final long hostStart = System.nanoTime();
+        final String host = getHost((HttpServletRequest) request, snapshot);
+        final AuthObject authObject = resolveHost(host, snapshot);
+        metrics.recordLatency(Stage.HOST, hostStart);
 
-        final Status status = allowed((HttpServletRequest) request);
+        final Status status = allowed((HttpServletRequest) request, (HttpServletResponse) response, host, authObject);
+        metrics.decision(authObject, status);
         if (status == Status.OK) {
             chain.doFilter(request, response);
             return;
@@ -136,16 +156,14 @@ public abstract class BaseIpFilter implements Filter {
         handleAuthorizationIssue((HttpServletRequest) request, (HttpServletResponse) response, status);
     }
 
-    private Status allowed(final HttpServletRequest request) {
+    private Status allowed(final HttpServletRequest request, final HttpServletResponse response, final String host,
+                           final AuthObject authObject) {
 
         if (log.isDebugEnabled()){
             printRequestHeaders(request);
             printRequestCookies(request);
         }
 
-        final String host = getHost(request);
-        final AuthObject authObject = cache.getUnchecked(host);
-
         // check if host is IP/auth protected
         if (authObject == null || !authObject.isValid()) {
             log.debug("{} configuration object match for host: {}", (authObject == null) ? "No" : "Invalid", host);
@@ -153,36 +171,56 @@ public abstract class BaseIpFilter implements Filter {
         }
 
         // check if path is ignored:
+        final long ignoreStart = System.nanoTime();
         final boolean ignored = isIgnored(request, authObject);
+        metrics.recordLatency(Stage.IGNORE, ignoreStart);
         if (ignored) {
             return Status.OK;
         }
 
-        final String ip = IpFilterUtils.getIp(request, authObject.getForwardedForHeader());
-        if (Strings.isNullOrEmpty(ip)) {
-            // shouldn't happen
-            log.warn("{}: IP was null or empty. Host is {}", this.getClass().getSimpleName(), host);
-            return Status.UNAUTHORIZED;
+        final long ipStart = System.nanoTime();
+        final Status ipStatus = matchIp(request, host, authObject);
+        metrics.recordLatency(Stage.IP, ipStart);
+        if (ipStatus != null) {
+            return ipStatus;
+        }
+
+        final long authenticationStart = System.nanoTime();
+        final Status status = authenticate(authObject, request, response, host);
+        metrics.recordLatency(Stage.AUTHENTICATION, authenticationStart);
+        return status;
+    }
+
+    /**
+     * @return decision based on the client IP, or null if the credentials have to be checked
+     */
+    private Status matchIp(final HttpServletRequest request, final String host, final AuthObject authObject) {
+        final ParsedIp ip = CLIENT_IP.get();
+        if (!IpFilterUtils.getClientIp(request, authObject.getForwardedForHeader(), authObject.getForwardedForHop(),
+                ip)) {
+            // no IP literal, so it can't be on the whitelist
+            log.debug("{}: no valid client IP. Host is {}", this.getClass().getSimpleName(), host);
+        }
+
+        // check if denied before
+        final int denied = denyCache.get(ip, authObject.getId());
+        if (denied != IpDecisionCache.NONE) {
+            log.debug("Denied by cache for host: {}, ip: {}", host, ip);
+            return STATUSES[denied];
         }
 
         // check if on whitelist
-        final IpHostPair pair = new IpHostPair(host, ip);
         final boolean cacheEnabled = authObject.isCacheEnabled();
-        boolean matched = ipCache.getUnchecked(pair);
-        final Set<IpMatcher> ipMatchers = authObject.getIpMatchers();
-        if (!matched) {
-            for (IpMatcher matcher : ipMatchers) {
-                if (matcher.matches(ip)) {
-                    log.debug("Found match for host: {}, ip: {}, path: {}", host, ip, IpFilterUtils.getPath(request));
-                    matched = true;
-                    if (cacheEnabled) {
-                        log.debug("Adding to ip cache: {}", ip);
-                        ipCache.put(pair, Boolean.TRUE);
-                    }else{
-                        log.debug("Skipping ip address cache, caching is disabled");
-                    }
-                    break;
-                }
+        boolean matched = ipCache.get(ip, authObject.getId()) == IP_ALLOWED;
+        final IpRangeTrie ipRangeTrie = authObject.getIpRangeTrie();
+        if (!matched && ip.matches(ipRangeTrie)) {
+            log.debug("Found match for host: {}, ip: {}, path: {}", host, ip, IpFilterUtils.getPath(request));
+            matched = true;
+            if (cacheEnabled) {
+                log.debug("Adding to ip cache: {}", ip);
+                ipCache.put(ip, authObject.getId(), IP_ALLOWED);
+            }else{
+                log.debug("Skipping ip address cache, caching is disabled");
             }
         }
 
@@ -195,46 +233,211 @@ public abstract class BaseIpFilter implements Filter {
         }
 
         // if no match is found and we have IP configured, exit
-        if (!matched && mustMatchAll && ipMatchers.size() > 0) {
+        if (!matched && mustMatchAll && !ipRangeTrie.isEmpty()) {
             log.debug("No match for host: {}, ip: {}. No attempt for basic authentication, must match both but IP set was empty", host, ip);
-            return Status.FORBIDDEN;
+            return deny(authObject, ip, Status.FORBIDDEN);
         }
 
         final boolean allowCmsUsers = authObject.isAllowCmsUsers();
         if (allowCmsUsers) {
             // must match basic authorization
-            return authenticate(authObject, request);
+            return null;
         }
 
         if (mustMatchAll) {
             log.error("{}: ambiguous configuration: match-all property is enabled but allow-cms-users is set to false. " +
                     "Still authenticating against the repository now.", this.getClass().getSimpleName());
-            return authenticate(authObject, request);
+            return null;
         }
 
         // no access
         if (log.isDebugEnabled()) {
             log.debug("Falling back to forbidden access for host: {}, ip: {}, path: {}", host, ip, IpFilterUtils.getPath(request));
         }
-        return Status.FORBIDDEN;
+        return deny(authObject, ip, Status.FORBIDDEN);
+    }
+
+    /**
+     * Authenticate with a valid authentication token cookie if there is one, otherwise with the subclass and issue a
+     * token on success.
+     */
+    private Status authenticate(final AuthObject authObject, final HttpServletRequest request,
+                                final HttpServletResponse response, final String host) {
+        final String authorization = authTokens == null ? null
+                : request.getHeader(IpFilterConstants.HEADER_AUTHORIZATION);
+        if (Strings.isNullOrEmpty(authorization)) {
+            return authenticate(authObject, request);
+        }
+        final String scope = getAuthTokenScope(authObject, host, authorization);
+        final Cookie[] cookies = request.getCookies();
+        if (cookies != null) {
+            for (Cookie cookie : cookies) {
+                if (authTokenCookie.equals(cookie.getName()) && authTokens.verify(cookie.getValue(), scope)) {
+                    log.debug("Valid authentication token for host: {}", host);
+                    return Status.OK;
+                }
+            }
+        }
+        final Status status = authenticate(authObject, request);
+        if (status == Status.OK) {
+            final Cookie cookie = new Cookie(authTokenCookie, authTokens.issue(scope));
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            cookie.setSecure(authTokenSecure);
+            cookie.setAttribute("SameSite", IpFilterConstants.AUTH_TOKEN_SAME_SITE);
+            cookie.setMaxAge((int) authTokens.getValiditySeconds());
+            response.addCookie(cookie);
+        }
+        return status;
+    }
+
+    /**
+     * A token is valid for the filter, host and credentials it was issued for, as long as the configuration set it was
+     * issued by authenticates the same way. The scope is only signed, never sent, so it can hold the credentials as is;
+     * another password of the same user gets authenticated again. Node names and host names can't contain '|', so the
+     * authorization header goes last.
+     */
+    private String getAuthTokenScope(final AuthObject authObject, final String host, final String authorization) {
+        return getClass().getName() + '|' + host + '|' + authObject.getName()
+                + '|' + authObject.isAllowCmsUsers() + '|' + authObject.isMustMatchAll() + '|' + authorization;
+    }
+
+    /**
+     * Cache a denial that only depends on the client IP and the configuration set, never on credentials.
+     */
+    private Status deny(final AuthObject authObject, final ParsedIp ip, final Status status) {
+        if (authObject.isCacheEnabled()) {
+            denyCache.put(ip, authObject.getId(), status.ordinal());
+        }
+        return status;
+    }
+
+    /**
+     * @return hit count of the cache of whitelisted client IPs
+     */
+    public long getIpCacheHitCount() {
+        return ipCache.getHitCount();
+    }
+
+    public long getIpCacheMissCount() {
+        return ipCache.getMissCount();
+    }
+
+    /**
+     * @return hit count of the cache of denied client IPs
+     */
+    public long getDenyCacheHitCount() {
+        return denyCache.getHitCount();
+    }
+
+    public long getDenyCacheMissCount() {
+        return denyCache.getMissCount();
+    }
+
+    /**
+     * @return eviction count of the cache of whitelisted client IPs
+     */
+    public long getIpCacheEvictionCount() {
+        return ipCache.getEvictionCount();
+    }
+
+    /**
+     * @return eviction count of the cache of denied client IPs
+     */
+    public long getDenyCacheEvictionCount() {
+        return denyCache.getEvictionCount();
+    }
+
+    /**
+     * @return counters of decisions and authentications
+     */
+    public IpFilterMetrics getMetrics() {
+        return metrics;
     }
 
     @Override
     public void destroy() {
+        statistics.unregister();
         invalidateCaches();
     }
 
     private void invalidateCaches() {
         log.debug("Invalidating all cache");
-        cache.invalidateAll();
-        userCache.invalidateAll();
+        hostCache.invalidateAll();
+        if (configLoader != null) {
+            // credential caches belong to the configuration sets, a new configuration starts with empty ones
+            for (AuthObject authObject : configLoader.getSnapshot().getAuthObjects().values()) {
+                authObject.getCredentialCache().invalidateAll();
+            }
+        }
         ipCache.invalidateAll();
+        denyCache.invalidateAll();
+    }
+
+    /**
+     * Get the configuration set for a host from the host cache, starting with an empty host cache when a new
+     * configuration changed the host names.
+     * <p>
+     * The IP and deny caches are never cleared for a new configuration: their entries are keyed by the
+     * {@link AuthObject#getId() id} of the configuration set, which only changes if its configuration changed.
+     */
+    private AuthObject resolveHost(final String host, final RuleSnapshot snapshot) {
+        HostCache hosts = hostCache;
+        if (hosts.getVersion() != snapshot.getHostIndexGeneration()) {
+            hosts = applySnapshot(snapshot);
+            if (hosts.getVersion() != snapshot.getHostIndexGeneration()) {
+                // a newer configuration was applied meanwhile, don't mix the generations
+                final AuthObject authObject = snapshot.getHostIndex().resolve(host);
+                return authObject == null ? AuthObject.INVALID : authObject;
+            }
+        }
+        return hosts.get(host, snapshot);
+    }
+
+    private synchronized HostCache applySnapshot(final RuleSnapshot snapshot) {
+        if (hostCache.getVersion() < snapshot.getHostIndexGeneration()) {
+            log.debug("Host names changed in configuration version {}", snapshot.getVersion());
+            // new configuration may have a different number of hosts
+            hostCache = hostCache.rebuild(snapshot.getHostIndex().getHostCount(), snapshot.getHostIndexGeneration());
+        }
+        return hostCache;
+    }
+
+    /**
+     * @return hit/miss statistics of the host to configuration set cache
+     */
+    public CacheStats getHostCacheStats() {
+        return hostCache.getStats();
+    }
+
+    /**
+     * @return hit/miss statistics of the cache of hosts without configuration
+     */
+    public CacheStats getUnknownHostCacheStats() {
+        return hostCache.getUnknownHostStats();
+    }
+
+    /**
+     * @return hit/miss statistics of the credential caches of the current configuration sets
+     */
+    public CacheStats getUserCacheStats() {
+        CacheStats stats = new CacheStats(0, 0, 0, 0, 0, 0);
+        if (configLoader != null) {
+            for (AuthObject authObject : configLoader.getSnapshot().getAuthObjects().values()) {
+                stats = stats.plus(authObject.getCredentialCache().getStats());
+            }
+        }
+        return stats;
     }
 
     protected  String getHost(final HttpServletRequest request) {
+        return getHost(request, configLoader.getSnapshot());
+    }
 
-        final Set<String> forwardedForHostHeaders = configLoader.getForwardedForHostHeaders();
-        for (String h : forwardedForHostHeaders) {
+    private String getHost(final HttpServletRequest request, final RuleSnapshot snapshot) {
+
+        for (int i = 0; i < snapshot.getForwardedHostHeaderCount(); i++) {
+            final String h = snapshot.getForwardedHostHeader(i);
             log.debug("fetching host for following header: {}", h);
             final String hostHeader = request.getHeader(h);
             if (!Strings.isNullOrEmpty(hostHeader)) {
@@ -285,38 +488,26 @@ public abstract class BaseIpFilter implements Filter {
 
 
     /**
-     * Check if path is ignored
+     * Check if path is ignored, package-private for the benchmarks
      */
-    private boolean isIgnored(final HttpServletRequest request, final AuthObject authObject) {
+    boolean isIgnored(final HttpServletRequest request, final AuthObject authObject) {
         final String path = IpFilterUtils.getPath(request);
-        final List<Pattern> ignoredPaths = authObject.getIgnoredPathPatterns();
-        for (final Pattern ignoredPath : ignoredPaths) {
-            final Matcher matcher = ignoredPath.matcher(path);
-            if (matcher.matches()) {
-                if (log.isDebugEnabled()) {
-                    log.debug("Path is ignored because of pattern {}: {}", ignoredPath.pattern(), path);
-                }
-                return true;
-            }
+        final String ignoredPath = authObject.getIgnoredPathMatcher().match(path);
+        if (ignoredPath != null) {
+            log.debug("Path is ignored because of pattern {}: {}", ignoredPath, path);
+            metrics.ignoredByPath();
+            return true;
         }
 
-        // check if we have header ignore:
-        final Map<String, Set<String>> multimap = authObject.getIgnoredHeaders();
-        if (multimap == null || multimap.isEmpty()) {
-            return false;
-        }
-        final Set<Map.Entry<String, Set<String>>> entries = multimap.entrySet();
-        for (Map.Entry<String, Set<String>> entry : entries) {
-            final String ignoreHeader = entry.getKey();
+        // check if we have header ignore, reading each configured header once:
+        final IgnoredHeaderMatcher ignoredHeaders = authObject.getIgnoredHeaderMatcher();
+        for (int i = 0; i < ignoredHeaders.size(); i++) {
+            final String ignoreHeader = ignoredHeaders.getName(i);
             final String value = request.getHeader(ignoreHeader);
             if (!Strings.isNullOrEmpty(value)) {
-                final Collection<String> headerValues = multimap.get(ignoreHeader);
-                if (headerValues == null) {
-                    continue;
-                }
-                final boolean matched = headerValues.contains(value);
-                if (matched) {
+                if (ignoredHeaders.matches(i, value)) {
                     log.debug("Matched header {} for value {}", ignoreHeader, value);
+                    metrics.ignoredByHeader();
                     return true;
                 } else {
                     log.debug("Header value mismatch, header {},  value {}", ignoreHeader, value);
@@ -333,6 +524,7 @@ public abstract class BaseIpFilter implements Filter {
     protected abstract Status authenticate(final AuthObject authObject, final HttpServletRequest request);
 
     private void handleAuthorizationIssue(final HttpServletRequest req, final HttpServletResponse res, Status status) {
+        final long start = System.nanoTime();
         try {
             switch (status) {
                 case FORBIDDEN:
@@ -343,6 +535,14 @@ public abstract class BaseIpFilter implements Filter {
                     log.info("{}: request unauthorized from: {}", this.getClass().getSimpleName(), req.getRemoteHost());
                     IpFilterUtils.handleUnauthorized(res, realm);
                     break;
+                case SERVICE_UNAVAILABLE:
+                    log.info("{}: request could not be authenticated in time from: {}", this.getClass().getSimpleName(), req.getRemoteHost());
+                    IpFilterUtils.handleServiceUnavailable(res, retryAfterSeconds);
+                    break;
+                case TOO_MANY_REQUESTS:
+                    log.info("{}: too many failed logins from: {}", this.getClass().getSimpleName(), req.getRemoteHost());
+                    IpFilterUtils.handleTooManyRequests(res, retryAfterSeconds);
+                    break;
                 default:
                     log.warn("{}: unknown status found. Request unauthorized from: {}", this.getClass().getSimpleName(), req.getRemoteHost());
                     IpFilterUtils.handleUnauthorized(res, realm);
@@ -351,38 +551,16 @@ public abstract class BaseIpFilter implements Filter {
         } catch (IOException e) {
             log.error("IOException raised in " + this.getClass().getSimpleName(), e);
         }
-    }
-
-    /**
-     * Load auth object for matched host name:
-     */
-    private AuthObject loadIpRules(final String host) {
-        log.debug("Loading rules for host {}", host);
-        final Map<String, AuthObject> rawData = configLoader.load();
-        for (Map.Entry<String, AuthObject> entry : rawData.entrySet()) {
-            final AuthObject value = entry.getValue();
-            final List<Pattern> hostPatterns = value.getHostPatterns();
-            for (Pattern pattern : hostPatterns) {
-                final Matcher matcher = pattern.matcher(host);
-                if (matcher.matches()) {
-                    log.debug("Loaded: {}", value);
-                    return value;
-                }
-            }
-        }
-
-        // just return invalid object
-        return AuthObject.INVALID;
+        metrics.recordLatency(Stage.DENIAL, start);
     }
 
     private void requestData() {
         if (!initialized) {
             initializeConfigManager();
         }
-        if (initialized && configLoader.needReloading()) {
-            configLoader.load();
-            invalidateCaches();
-            log.info("{}: data reloaded", this.getClass().getSimpleName());
+        if (initialized) {
+            // the first load is waited for, caches are invalidated when a request sees the new configuration version
+            configLoader.refresh();
         }
     }
 
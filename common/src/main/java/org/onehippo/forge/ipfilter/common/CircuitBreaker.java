@@ -0,0 +1,135 @@
+/*
+ * Copyright 2026 Bloomreach
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onehippo.forge.ipfilter.common;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Circuit breaker around a remote dependency.
+ * <p>
+ * After a number of consecutive failures the circuit opens and calls are refused without trying. Once the open
+ * period has passed, one call is let through as probe: if it succeeds the circuit closes, if it fails the circuit
+ * opens again. A closed circuit costs one volatile read per call.
+ */
+public final class CircuitBreaker {
+
+    private static final Logger log = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String name;
+    private final int failureThreshold;
+    private final long openNanos;
+    private final LongSupplier clock;
+
+    private volatile State state = State.CLOSED;
+    private volatile int failures;
+    // time the open period ends, or the time a probe is considered lost when half open
+    private long retryAt;
+
+    /**
+     * @param name             name of the dependency, for logging
+     * @param failureThreshold number of consecutive failures opening the circuit
+     * @param openDuration     time the circuit stays open before a call is let through
+     * @param unit             unit of the open duration
+     */
+    public CircuitBreaker(final String name, final int failureThreshold, final long openDuration, final TimeUnit unit) {
+        this(name, failureThreshold, openDuration, unit, System::nanoTime);
+    }
+
+    CircuitBreaker(final String name, final int failureThreshold, final long openDuration, final TimeUnit unit,
+                   final LongSupplier clock) {
+        this.name = name;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openNanos = unit.toNanos(openDuration);
+        this.clock = clock;
+    }
+
+    /**
+     * @return TRUE if the call may be made, which must then be reported with {@link #onSuccess()} or
+     * {@link #onFailure()}
+     */
+    public boolean allowRequest() {
+        if (state == State.CLOSED) {
+            return true;
+        }
+        synchronized (this) {
+            if (state == State.CLOSED) {
+                return true;
+            }
+            final long now = clock.getAsLong();
+            if (now - retryAt < 0L) {
+                return false;
+            }
+            // one probe per open period, also when an earlier probe never reported back
+            state = State.HALF_OPEN;
+            retryAt = now + openNanos;
+            log.debug("Probing {}", name);
+            return true;
+        }
+    }
+
+    public void onSuccess() {
+        if (state == State.CLOSED && failures == 0) {
+            return;
+        }
+        synchronized (this) {
+            if (state != State.CLOSED) {
+                log.info("{} is available again", name);
+            }
+            state = State.CLOSED;
+            failures = 0;
+        }
+    }
+
+    public synchronized void onFailure() {
+        failures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && failures >= failureThreshold)) {
+            if (state == State.CLOSED) {
+                log.warn("{} failed {} times, not trying again for {} seconds", name, failures,
+                        TimeUnit.NANOSECONDS.toSeconds(openNanos));
+            }
+            state = State.OPEN;
+            retryAt = clock.getAsLong() + openNanos;
+        }
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public int getFailureCount() {
+        return failures;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String toString() {
+        return "CircuitBreaker{" +
+                "name='" + name + '\'' +
+                ", state=" + state +
+                '}';
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2026 Bloomreach
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onehippo.forge.ipfilter.common;
+
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.spec.SecretKeySpec;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+/**
+ * Cache of successfully authenticated credentials of one configuration set.
+ * <p>
+ * Entries are keyed by an HMAC of the raw Authorization header, with a key generated at startup. So no passwords are
+ * kept on the heap, distinct credentials don't collide, and a cache hit needs no decoding of the header.
+ */
+public final class CredentialCache {
+
+    private static final HashFunction HMAC = Hashing.hmacSha256(new SecretKeySpec(randomKey(), "HmacSHA256"));
+
+    private final Cache<HashCode, Boolean> cache;
+    private final long maximumSize;
+    private final long expireMinutes;
+
+    /**
+     * @param maximumSize   maximum number of cached credentials
+     * @param expireMinutes minutes after which cached credentials must be authenticated again
+     */
+    public CredentialCache(final long maximumSize, final long expireMinutes) {
+        this.maximumSize = maximumSize;
+        this.expireMinutes = expireMinutes;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireMinutes, TimeUnit.MINUTES)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * @param authorizationHeader raw value of the Authorization header
+     * @return cache key of the header value
+     */
+    public static HashCode key(final String authorizationHeader) {
+        return HMAC.hashString(authorizationHeader, StandardCharsets.UTF_8);
+    }
+
+    public boolean contains(final HashCode key) {
+        return cache.getIfPresent(key) != null;
+    }
+
+    public void put(final HashCode key) {
+        cache.put(key, Boolean.TRUE);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    public long getMaximumSize() {
+        return maximumSize;
+    }
+
+    public long getExpireMinutes() {
+        return expireMinutes;
+    }
+
+    /**
+     * @return hit/miss statistics
+     */
+    public CacheStats getStats() {
+        return cache.stats();
+    }
+
+    private static byte[] randomKey() {
+        final byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        return key;
+    }
+}
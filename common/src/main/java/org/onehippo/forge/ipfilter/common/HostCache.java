@@ -0,0 +1,137 @@
+/*
+ * Copyright 2026 Bloomreach
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onehippo.forge.ipfilter.common;
+
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+/**
+ * Cache of host name to configuration set resolutions.
+ * <p>
+ * Hosts that resolve to a configuration set are kept in a cache sized to the number of configured host names. Hosts
+ * without configuration are kept in a separate, bounded cache, so junk Host or X-Forwarded-Host values cannot evict
+ * the configured hosts.
+ * <p>
+ * A cache serves all snapshots of one {@link RuleSnapshot#getHostIndexGeneration() host index generation}. Entries
+ * pointing to a configuration set that a reload replaced are resolved again when read.
+ */
+public final class HostCache {
+
+    private final Cache<String, AuthObject> hosts;
+    private final Cache<String, Boolean> unknownHosts;
+    private final int capacity;
+    private final long version;
+    private final CacheStats previousHostStats;
+    private final CacheStats previousUnknownHostStats;
+
+    /**
+     * @param hostCount number of configured host names
+     */
+    public HostCache(final int hostCount) {
+        this(hostCount, 0L, new CacheStats(0, 0, 0, 0, 0, 0), new CacheStats(0, 0, 0, 0, 0, 0));
+    }
+
+    private HostCache(final int hostCount, final long version, final CacheStats previousHostStats,
+                      final CacheStats previousUnknownHostStats) {
+        // regular expression host names may match more than one host, so leave some room
+        this.capacity = hostCount + IpFilterConstants.CACHE_SITE;
+        this.version = version;
+        this.hosts = CacheBuilder.newBuilder()
+                .maximumSize(capacity)
+                .expireAfterWrite(IpFilterConstants.CACHE_EXPIRES_IN_DAYS, TimeUnit.DAYS)
+                .recordStats()
+                .build();
+        this.unknownHosts = CacheBuilder.newBuilder()
+                .maximumSize(IpFilterConstants.UNKNOWN_HOST_CACHE_SIZE)
+                .expireAfterWrite(IpFilterConstants.CACHE_EXPIRE_IN_MINUTES, TimeUnit.MINUTES)
+                .recordStats()
+                .build();
+        this.previousHostStats = previousHostStats;
+        this.previousUnknownHostStats = previousUnknownHostStats;
+    }
+
+    /**
+     * Get the configuration set for a host, resolving and caching it if not cached yet or if the cached configuration
+     * set is not part of the snapshot.
+     *
+     * @param host     normalized host name
+     * @param snapshot snapshot of the host index generation of this cache
+     * @return the configuration set, {@link AuthObject#INVALID} if there is none
+     */
+    public AuthObject get(final String host, final RuleSnapshot snapshot) {
+        final AuthObject cached = hosts.getIfPresent(host);
+        if (cached != null) {
+            if (snapshot.contains(cached)) {
+                return cached;
+            }
+            // replaced by a reload, the host still resolves to the configuration set by the same name
+        } else if (unknownHosts.getIfPresent(host) != null) {
+            return AuthObject.INVALID;
+        }
+        final AuthObject resolved = snapshot.getHostIndex().resolve(host);
+        if (resolved == null) {
+            unknownHosts.put(host, Boolean.TRUE);
+            return AuthObject.INVALID;
+        }
+        hosts.put(host, resolved);
+        return resolved;
+    }
+
+    /**
+     * Create an empty cache for a new configuration, keeping the statistics.
+     *
+     * @param hostCount number of configured host names
+     * @param version   {@link RuleSnapshot#getHostIndexGeneration() host index generation} of the snapshots the
+     *                  entries will be resolved from
+     */
+    public HostCache rebuild(final int hostCount, final long version) {
+        return new HostCache(hostCount, version, getStats(), getUnknownHostStats());
+    }
+
+    public void invalidateAll() {
+        hosts.invalidateAll();
+        unknownHosts.invalidateAll();
+    }
+
+    /**
+     * @return {@link RuleSnapshot#getHostIndexGeneration() host index generation} of the snapshots the entries are
+     * resolved from
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return statistics of the configured hosts cache, since creation of the first cache
+     */
+    public CacheStats getStats() {
+        return previousHostStats.plus(hosts.stats());
+    }
+
+    /**
+     * @return statistics of the unknown hosts cache, since creation of the first cache
+     */
+    public CacheStats getUnknownHostStats() {
+        return previousUnknownHostStats.plus(unknownHosts.stats());
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2026 Bloomreach
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onehippo.forge.ipfilter.common;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Index from host name to configuration set, compiled once when the configuration is loaded.
+ * <p>
+ * Host names without regular expression syntax (apart from dots, escaped or not) are looked up in a hash map, only
+ * real regular expressions are evaluated, combined into one alternation where possible. As before, the first
+ * configuration set (in configuration order) with a matching host name wins.
+ */
+public final class HostIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(HostIndex.class);
+
+    public static final HostIndex EMPTY = compile(ImmutableMap.of());
+
+    private static final String REGEX_SYNTAX = "^$|?*+()[]{}";
+
+    private final AuthObject[] targets;
+    private final Map<String, Integer> literals;
+    private final int[] regexOrdinals;
+    private final Pattern[] regexes;
+    private final Pattern combined;
+    private final int[] combinedGroups;
+    private final int hostCount;
+
+    private HostIndex(final AuthObject[] targets, final Map<String, Integer> literals, final int[] regexOrdinals,
+                      final Pattern[] regexes) {
+        this.targets = targets;
+        this.literals = literals;
+        this.regexOrdinals = regexOrdinals;
+        this.regexes = regexes;
+        this.hostCount = targets.length;
+        this.combinedGroups = new int[regexes.length];
+        this.combined = combine(regexes, combinedGroups);
+    }
+
+    /**
+     * Compiles the host patterns of the configuration sets, iterated in configuration order.
+     */
+    public static HostIndex compile(final Map<String, AuthObject> authObjects) {
+        final List<AuthObject> targets = new ArrayList<>();
+        final Map<String, Integer> literals = new HashMap<>();
+        final List<Integer> regexOrdinals = new ArrayList<>();
+        final List<Pattern> regexes = new ArrayList<>();
+        for (AuthObject authObject : authObjects.values()) {
+            for (Pattern pattern : authObject.getHostPatterns()) {
+                final int ordinal = targets.size();
+                targets.add(authObject);
+                final String literal = toLiteral(pattern);
+                if (literal != null) {
+                    // first one wins
+                    literals.putIfAbsent(literal, ordinal);
+                } else {
+                    regexOrdinals.add(ordinal);
+                    regexes.add(pattern);
+                }
+            }
+        }
+        final int[] ordinals = new int[regexOrdinals.size()];
+        for (int i = 0; i < ordinals.length; i++) {
+            ordinals[i] = regexOrdinals.get(i);
+        }
+        return new HostIndex(targets.toArray(new AuthObject[0]), ImmutableMap.copyOf(literals), ordinals,
+                regexes.toArray(new Pattern[0]));
+    }
+
+    /**
+     * Find the configuration set for a host name.
+     *
+     * @param host the normalized host name
+     * @return the first configuration set with a matching host name, or null if there is none
+     */
+    public AuthObject resolve(final String host) {
+        if (host == null) {
+            return null;
+        }
+        final Integer literal = literals.get(host);
+        final int limit = literal == null ? Integer.MAX_VALUE : literal;
+        if (regexes.length > 0 && regexOrdinals[0] < limit) {
+            final int regex = findRegex(host, limit);
+            if (regex >= 0) {
+                return targets[regex];
+            }
+        }
+        return literal == null ? null : targets[literal];
+    }
+
+    /**
+     * @return number of configured host names
+     */
+    public int getHostCount() {
+        return hostCount;
+    }
+
+    /**
+     * @return ordinal of the first regular expression host matching, lower than the limit, or -1
+     */
+    private int findRegex(final String host, final int limit) {
+        if (combined != null) {
+            final Matcher matcher = combined.matcher(host);
+            if (!matcher.matches()) {
+                return -1;
+            }
+            // alternation tries alternatives in order, so the first participating group is the first match
+            for (int i = 0; i < combinedGroups.length && regexOrdinals[i] < limit; i++) {
+                if (matcher.start(combinedGroups[i]) >= 0) {
+                    return regexOrdinals[i];
+                }
+            }
+            return -1;
+        }
+        for (int i = 0; i < regexes.length && regexOrdinals[i] < limit; i++) {
+            if (regexes[i].matcher(host).matches()) {
+                return regexOrdinals[i];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the host name if the pattern only matches that literal host name (treating dots as literal), or null
+     */
+    static String toLiteral(final Pattern pattern) {
+        if (pattern.flags() != 0) {
+            return null;
+        }
+        final String regex = pattern.pattern();
+        final StringBuilder literal = new StringBuilder(regex.length());
+        for (int i = 0; i < regex.length(); i++) {
+            final char c = regex.charAt(i);
+            if (c == '\\') {
+                if (i + 1 < regex.length() && (regex.charAt(i + 1) == '.' || regex.charAt(i + 1) == '-')) {
+                    literal.append(regex.charAt(++i));
+                    continue;
+                }
+                return null;
+            }
+            if (REGEX_SYNTAX.indexOf(c) >= 0) {
+                return null;
+            }
+            literal.append(c);
+        }
+        return literal.toString();
+    }
+
+    private static Pattern combine(final Pattern[] regexes, final int[] groups) {
+        if (regexes.length < 2) {
+            return null;
+        }
+        final StringBuilder alternation = new StringBuilder();
+        int group = 1;
+        for (int i = 0; i < regexes.length; i++) {
+            final String regex = regexes[i].pattern();
+            if (regexes[i].flags() != 0 || regex.contains("\\k<") || regex.contains("(?<")
+                    || regex.matches(".*\\\\[1-9].*")) {
+                // group renumbering would break back references and duplicate group names don't compile
+                return null;
+            }
+            if (i > 0) {
+                alternation.append('|');
+            }
+            alternation.append('(').append(regex).append(')');
+            groups[i] = group;
+            group += 1 + regexes[i].matcher("").groupCount();
+        }
+        try {
+            return Pattern.compile(alternation.toString());
+        } catch (PatternSyntaxException e) {
+            log.debug("Cannot combine host patterns, evaluating them one by one", e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2026 Bloomreach
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onehippo.forge.ipfilter.common;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Lookup table for the ignored headers of one configuration set, compiled once when the {@link AuthObject} is
+ * created.
+ * <p>
+ * Header names are case insensitive, so configured names differing in case only are merged into one entry and each
+ * header is read once per request. A header value matches if it equals one of the configured values. Values configured
+ * with tokens also match one of the comma separated tokens of the header value. Values configured with ignore case are
+ * compared case insensitively.
+ */
+public final class IgnoredHeaderMatcher {
+
+    public static final IgnoredHeaderMatcher EMPTY = new IgnoredHeaderMatcher(new Entry[0]);
+
+    private final Entry[] entries;
+
+    private IgnoredHeaderMatcher(final Entry[] entries) {
+        this.entries = entries;
+    }
+
+    /**
+     * @param ignoredHeaders           header name to values that are matched case sensitively
+     * @param ignoredHeadersIgnoreCase header name to values that are matched case insensitively
+     * @param ignoredHeaderTokens      header name to values of the other maps that also match a comma separated token
+     */
+    public static IgnoredHeaderMatcher compile(final Map<String, Set<String>> ignoredHeaders,
+                                               final Map<String, Set<String>> ignoredHeadersIgnoreCase,
+                                               final Map<String, Set<String>> ignoredHeaderTokens) {
+        final Map<String, Entry> entries = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        add(entries, ignoredHeaders, false);
+        add(entries, ignoredHeadersIgnoreCase, true);
+        if (ignoredHeaderTokens != null) {
+            for (Map.Entry<String, Set<String>> header : ignoredHeaderTokens.entrySet()) {
+                final Entry entry = header.getKey() == null ? null : entries.get(header.getKey());
+                if (entry != null && header.getValue() != null) {
+                    entry.tokens.addAll(header.getValue());
+                }
+            }
+        }
+        final List<Entry> compiled = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            if (entry.compile()) {
+                compiled.add(entry);
+            }
+        }
+        return compiled.isEmpty() ? EMPTY : new IgnoredHeaderMatcher(compiled.toArray(new Entry[0]));
+    }
+
+    private static void add(final Map<String, Entry> entries, final Map<String, Set<String>> headers,
+                            final boolean ignoreCase) {
+        if (headers == null) {
+            return;
+        }
+        for (Map.Entry<String, Set<String>> header : headers.entrySet()) {
+            if (header.getKey() == null || header.getKey().isEmpty() || header.getValue() == null) {
+                continue;
+            }
+            final Entry entry = entries.computeIfAbsent(header.getKey(), Entry::new);
+            for (String value : header.getValue()) {
+                if (value != null && !value.isEmpty()) {
+                    (ignoreCase ? entry.folded : entry.exact).add(value);
+                }
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        return entries.length == 0;
+    }
+
+    /**
+     * @return number of distinct header names
+     */
+    public int size() {
+        return entries.length;
+    }
+
+    /**
+     * @return name of the header at the index, to be read from the request
+     */
+    public String getName(final int index) {
+        return entries[index].name;
+    }
+
+    /**
+     * @param index index of the header
+     * @param value value of the header in the request
+     * @return TRUE if the value, or for values configured with tokens one of its comma separated tokens, is one of the
+     * ignored values of the header
+     */
+    public boolean matches(final int index, final String value) {
+        return value != null && !value.isEmpty() && entries[index].matches(value);
+    }
+
+    private static final class Entry {
+
+        private final String name;
+        private final Set<String> exact = new HashSet<>();
+        private final Set<String> folded = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        private final Set<String> tokens = new HashSet<>();
+        // values matched against the comma separated tokens of a header value
+        private String[] exactTokens;
+        private String[] foldedTokens;
+
+        private Entry(final String name) {
+            this.name = name;
+        }
+
+        private boolean compile() {
+            final List<String> exactTokenList = new ArrayList<>();
+            final List<String> foldedTokenList = new ArrayList<>();
+            for (String token : tokens) {
+                if (exact.contains(token)) {
+                    exactTokenList.add(token);
+                }
+                if (folded.contains(token)) {
+                    foldedTokenList.add(token);
+                }
+            }
+            exactTokens = exactTokenList.toArray(new String[0]);
+            foldedTokens = foldedTokenList.toArray(new String[0]);
+            return !exact.isEmpty() || !folded.isEmpty();
+        }
+
+        private boolean matches(final String value) {
+            if (exact.contains(value) || folded.contains(value)) {
+                return true;
+            }
+            if (exactTokens.length + foldedTokens.length == 0 || value.indexOf(',') < 0) {
+                return false;
+            }
+            int start = 0;
+            while (start <= value.length()) {
+                int end = value.indexOf(',', start);
+                if (end < 0) {
+                    end = value.length();
+                }
+                int tokenStart = start;
+                int tokenEnd = end;
+                while (tokenStart < tokenEnd && Character.isWhitespace(value.charAt(tokenStart))) {
+                    tokenStart++;
+                }
+                while (tokenEnd > tokenStart && Character.isWhitespace(value.charAt(tokenEnd - 1))) {
+                    tokenEnd--;
+                }
+                if (tokenEnd > tokenStart && (containsRegion(exactTokens, value, tokenStart, tokenEnd, false)
+                        || containsRegion(foldedTokens, value, tokenStart, tokenEnd, true))) {
+                    return true;
+                }
+                start = end + 1;
+            }
+            return false;
+        }
+
+        private static boolean containsRegion(final String[] values, final String value, final int start,
+                                              final int end, final boolean ignoreCase) {
+            final int length = end - start;
+            for (String candidate : values) {
+                if (candidate.length() == length && value.regionMatches(ignoreCase, start, candidate, 0, length)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public String toString() {
+            return name + "=" + exact + (folded.isEmpty() ? "" : " (ignore case: " + folded + ")")
+                    + (tokens.isEmpty() ? "" : " (tokens: " + tokens + ")");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "IgnoredHeaderMatcher" + Arrays.toString(entries);
+    }
+}
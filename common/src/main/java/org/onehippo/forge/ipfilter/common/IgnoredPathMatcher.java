@@ -0,0 +1,362 @@
+/*
+ * Copyright 2026 Bloomreach
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onehippo.forge.ipfilter.common;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Matcher for the ignored path patterns of one configuration set, compiled once when the {@link AuthObject} is
+ * created.
+ * <p>
+ * Most ignored paths are literal paths (<code>/autoreload</code>), literal prefixes (<code>^/binaries/.*</code>) or
+ * literal suffixes (<code>.*\.css</code>). These are looked up in a hash set, a prefix trie and a suffix trie, so
+ * matching costs one walk over the path. Only the remaining patterns are evaluated as regular expression, combined
+ * into one alternation where possible. The result is the same as matching every pattern separately.
+ */
+public final class IgnoredPathMatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(IgnoredPathMatcher.class);
+
+    public static final IgnoredPathMatcher EMPTY = compile(null);
+
+    private static final String REGEX_SYNTAX = "\\^$.|?*+()[]{}";
+    private static final String ANY = ".*";
+
+    private final Map<String, String> exact;
+    private final CharTrie prefixes;
+    private final CharTrie suffixes;
+    private final Pattern[] regexes;
+    private final Pattern combined;
+    private final int[] combinedGroups;
+    private final int size;
+
+    private IgnoredPathMatcher(final Map<String, String> exact, final CharTrie prefixes, final CharTrie suffixes,
+                               final Pattern[] regexes, final int size) {
+        this.exact = exact;
+        this.prefixes = prefixes;
+        this.suffixes = suffixes;
+        this.regexes = regexes;
+        this.size = size;
+        this.combinedGroups = new int[regexes.length];
+        this.combined = combine(regexes, combinedGroups);
+    }
+
+    /**
+     * Compiles the ignored path patterns, skipping empty and invalid ones.
+     */
+    public static IgnoredPathMatcher compile(final Collection<String> ignoredPaths) {
+        final Map<String, String> exact = new HashMap<>();
+        final TreeMap<String, String> prefixes = new TreeMap<>();
+        final TreeMap<String, String> suffixes = new TreeMap<>();
+        final Map<String, Pattern> regexes = new LinkedHashMap<>();
+        int size = 0;
+        if (ignoredPaths != null) {
+            for (String ignored : ignoredPaths) {
+                if (ignored == null || ignored.isEmpty()) {
+                    continue;
+                }
+                final Pattern pattern;
+                try {
+                    pattern = Pattern.compile(ignored);
+                } catch (PatternSyntaxException e) {
+                    //noinspection StringConcatenationArgumentToLogCall
+                    log.error("Error compiling path pattern " + ignored, e);
+                    continue;
+                }
+                size++;
+                final String body = stripAnchors(ignored);
+                String literal = toLiteral(body);
+                if (literal != null) {
+                    exact.putIfAbsent(literal, ignored);
+                    continue;
+                }
+                if (body.endsWith(ANY) && (literal = toLiteral(body.substring(0, body.length() - ANY.length()))) != null) {
+                    prefixes.putIfAbsent(literal, ignored);
+                    continue;
+                }
+                if (body.startsWith(ANY) && (literal = toLiteral(body.substring(ANY.length()))) != null) {
+                    suffixes.putIfAbsent(new StringBuilder(literal).reverse().toString(), ignored);
+                    continue;
+                }
+                regexes.putIfAbsent(ignored, pattern);
+            }
+        }
+        return new IgnoredPathMatcher(ImmutableMap.copyOf(exact), CharTrie.build(prefixes), CharTrie.build(suffixes),
+                regexes.values().toArray(new Pattern[0]), size);
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @param path request path, without context path
+     * @return the ignored path pattern matching the path, or null if the path is not ignored
+     */
+    public String match(final String path) {
+        if (path == null || size == 0) {
+            return null;
+        }
+        final String exactMatch = exact.get(path);
+        if (exactMatch != null) {
+            return exactMatch;
+        }
+        if (prefixes != null || suffixes != null) {
+            // ".*" doesn't match line terminators
+            int first = -1;
+            int last = -1;
+            for (int i = 0; i < path.length(); i++) {
+                if (isLineTerminator(path.charAt(i))) {
+                    if (first < 0) {
+                        first = i;
+                    }
+                    last = i;
+                }
+            }
+            final String prefix = prefixes == null ? null : prefixes.matchPrefix(path, last);
+            if (prefix != null) {
+                return prefix;
+            }
+            final String suffix = suffixes == null ? null : suffixes.matchSuffix(path, first);
+            if (suffix != null) {
+                return suffix;
+            }
+        }
+        return matchRegex(path);
+    }
+
+    private String matchRegex(final String path) {
+        if (combined != null) {
+            final Matcher matcher = combined.matcher(path);
+            if (!matcher.matches()) {
+                return null;
+            }
+            for (int i = 0; i < combinedGroups.length; i++) {
+                if (matcher.start(combinedGroups[i]) >= 0) {
+                    return regexes[i].pattern();
+                }
+            }
+            return null;
+        }
+        for (Pattern regex : regexes) {
+            if (regex.matcher(path).matches()) {
+                return regex.pattern();
+            }
+        }
+        return null;
+    }
+
+    private static String stripAnchors(final String regex) {
+        int start = 0;
+        int end = regex.length();
+        if (regex.startsWith("^")) {
+            start++;
+        }
+        // a trailing "$" is an anchor unless it is escaped
+        if (end > start && regex.charAt(end - 1) == '$' && (end < 2 || regex.charAt(end - 2) != '\\')) {
+            end--;
+        }
+        return regex.substring(start, end);
+    }
+
+    /**
+     * @return the string the regular expression exactly matches, or null if it is not a literal
+     */
+    static String toLiteral(final String regex) {
+        final StringBuilder literal = new StringBuilder(regex.length());
+        for (int i = 0; i < regex.length(); i++) {
+            final char c = regex.charAt(i);
+            if (c == '\\') {
+                // escaped punctuation is literal, escapes like \d, \Q or \t are not analyzed
+                if (i + 1 < regex.length() && !Character.isLetterOrDigit(regex.charAt(i + 1))) {
+                    literal.append(regex.charAt(++i));
+                    continue;
+                }
+                return null;
+            }
+            if (REGEX_SYNTAX.indexOf(c) >= 0) {
+                return null;
+            }
+            literal.append(c);
+        }
+        return literal.toString();
+    }
+
+    private static boolean isLineTerminator(final char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    private static Pattern combine(final Pattern[] regexes, final int[] groups) {
+        if (regexes.length < 2) {
+            return null;
+        }
+        final StringBuilder alternation = new StringBuilder();
+        int group = 1;
+        for (int i = 0; i < regexes.length; i++) {
+            final String regex = regexes[i].pattern();
+            if (regexes[i].flags() != 0 || regex.contains("\\k<") || regex.contains("(?<")
+                    || regex.matches(".*\\\\[1-9].*")) {
+                // group renumbering would break back references and duplicate group names don't compile
+                return null;
+            }
+            if (i > 0) {
+                alternation.append('|');
+            }
+            alternation.append('(').append(regex).append(')');
+            groups[i] = group;
+            group += 1 + regexes[i].matcher("").groupCount();
+        }
+        try {
+            return Pattern.compile(alternation.toString());
+        } catch (PatternSyntaxException e) {
+            log.debug("Cannot combine ignored path patterns, evaluating them one by one", e);
+            return null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "IgnoredPathMatcher{" +
+                "exact=" + exact.size() +
+                ", prefixes=" + (prefixes == null ? 0 : prefixes.size) +
+                ", suffixes=" + (suffixes == null ? 0 : suffixes.size) +
+                ", regexes=" + regexes.length +
+                '}';
+    }
+
+    /**
+     * Immutable character trie, children kept in sorted arrays so lookups don't allocate.
+     */
+    private static final class CharTrie {
+
+        private final char[] keys;
+        private final CharTrie[] children;
+        private final String pattern;
+        private final int size;
+
+        private CharTrie(final char[] keys, final CharTrie[] children, final String pattern, final int size) {
+            this.keys = keys;
+            this.children = children;
+            this.pattern = pattern;
+            this.size = size;
+        }
+
+        private static CharTrie build(final TreeMap<String, String> entries) {
+            if (entries.isEmpty()) {
+                return null;
+            }
+            return build(new ArrayList<>(entries.entrySet()), 0, entries.size(), 0);
+        }
+
+        /**
+         * Builds the node for the sorted entries [from, to) sharing their first depth characters.
+         */
+        private static CharTrie build(final List<Map.Entry<String, String>> entries, int from, final int to,
+                                      final int depth) {
+            String pattern = null;
+            if (entries.get(from).getKey().length() == depth) {
+                // sorted, so the key ending here comes first
+                pattern = entries.get(from).getValue();
+                from++;
+            }
+            final List<Character> keys = new ArrayList<>();
+            final List<CharTrie> children = new ArrayList<>();
+            int start = from;
+            while (start < to) {
+                final char c = entries.get(start).getKey().charAt(depth);
+                int end = start + 1;
+                while (end < to && entries.get(end).getKey().charAt(depth) == c) {
+                    end++;
+                }
+                keys.add(c);
+                children.add(build(entries, start, end, depth + 1));
+                start = end;
+            }
+            final char[] keyArray = new char[keys.size()];
+            for (int i = 0; i < keyArray.length; i++) {
+                keyArray[i] = keys.get(i);
+            }
+            return new CharTrie(keyArray, children.toArray(new CharTrie[0]), pattern, to - from
+                    + (pattern == null ? 0 : 1));
+        }
+
+        private CharTrie child(final char c) {
+            int low = 0;
+            int high = keys.length - 1;
+            while (low <= high) {
+                final int mid = (low + high) >>> 1;
+                if (keys[mid] < c) {
+                    low = mid + 1;
+                } else if (keys[mid] > c) {
+                    high = mid - 1;
+                } else {
+                    return children[mid];
+                }
+            }
+            return null;
+        }
+
+        /**
+         * @param lastLineTerminator index of the last line terminator in the path, -1 if none
+         * @return pattern of a prefix of the path followed by no line terminator, or null
+         */
+        private String matchPrefix(final String path, final int lastLineTerminator) {
+            CharTrie node = this;
+            for (int i = 0; node != null; i++) {
+                if (node.pattern != null && lastLineTerminator < i) {
+                    return node.pattern;
+                }
+                if (i == path.length()) {
+                    return null;
+                }
+                node = node.child(path.charAt(i));
+            }
+            return null;
+        }
+
+        /**
+         * @param firstLineTerminator index of the first line terminator in the path, -1 if none
+         * @return pattern of a suffix of the path preceded by no line terminator, or null
+         */
+        private String matchSuffix(final String path, final int firstLineTerminator) {
+            CharTrie node = this;
+            for (int i = 0; node != null; i++) {
+                if (node.pattern != null && (firstLineTerminator < 0 || firstLineTerminator >= path.length() - i)) {
+                    return node.pattern;
+                }
+                if (i == path.length()) {
+                    return null;
+                }
+                node = node.child(path.charAt(path.length() - 1 - i));
+            }
+            return null;
+        }
+    }
+}
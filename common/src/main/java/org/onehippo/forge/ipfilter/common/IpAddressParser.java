@@ -0,0 +1,301 @@
+/*
+ * Copyright 2026 Bloomreach
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onehippo.forge.ipfilter.common;
+
+/**
+ * Parser of IP address literals, as found in forwarded-for headers, into a {@link ParsedIp}.
+ * <p>
+ * Parsing is done straight from the character sequence: it does not allocate and never resolves host names. Ports
+ * (<code>1.2.3.4:8080</code>, <code>[::1]:8080</code>) and IPv6 zone ids (<code>fe80::1%eth0</code>) are stripped,
+ * IPv4-mapped IPv6 addresses become IPv4. Anything else than a literal, like <code>unknown</code> or a host name, is
+ * rejected.
+ */
+public final class IpAddressParser {
+
+    private IpAddressParser() {
+    }
+
+    /**
+     * Parses the whole value as one IP address.
+     *
+     * @param value  IP address, may be surrounded by whitespace
+     * @param target holder of the result, cleared if parsing fails
+     * @return TRUE if the value was a valid IP address
+     */
+    public static boolean parse(final CharSequence value, final ParsedIp target) {
+        target.clear();
+        return value != null && parse(value, 0, value.length(), target);
+    }
+
+    /**
+     * Parses one hop of a comma separated forwarded-for header. Empty entries are skipped.
+     *
+     * @param header forwarded-for header value
+     * @param hop    index of the hop, counting from 0 for the first (client) hop, or negative to count from the end,
+     *               -1 being the last (nearest proxy) hop
+     * @param target holder of the result, cleared if parsing fails
+     * @return TRUE if the hop exists and is a valid IP address
+     */
+    public static boolean parseHop(final CharSequence header, final int hop, final ParsedIp target) {
+        target.clear();
+        if (header == null) {
+            return false;
+        }
+        final int length = header.length();
+        if (hop >= 0) {
+            int index = 0;
+            int start = 0;
+            while (start <= length) {
+                int end = indexOf(header, ',', start, length);
+                if (!isBlank(header, start, end)) {
+                    if (index == hop) {
+                        return parse(header, start, end, target);
+                    }
+                    index++;
+                }
+                start = end + 1;
+            }
+        } else {
+            int index = -1;
+            int end = length;
+            while (end >= 0) {
+                int start = lastIndexOf(header, ',', end) + 1;
+                if (!isBlank(header, start, end)) {
+                    if (index == hop) {
+                        return parse(header, start, end, target);
+                    }
+                    index--;
+                }
+                end = start - 1;
+            }
+        }
+        return false;
+    }
+
+    private static boolean parse(final CharSequence value, int start, int end, final ParsedIp target) {
+        while (start < end && Character.isWhitespace(value.charAt(start))) {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(value.charAt(end - 1))) {
+            end--;
+        }
+        if (start == end) {
+            return false;
+        }
+
+        if (value.charAt(start) == '[') {
+            final int close = indexOf(value, ']', start + 1, end);
+            if (close == end || !isPortOrEmpty(value, close + 1, end)) {
+                return false;
+            }
+            return parseIpv6(value, start + 1, stripZone(value, start + 1, close), target);
+        }
+
+        final int firstColon = indexOf(value, ':', start, end);
+        if (firstColon == end) {
+            return parseIpv4(value, start, end, target);
+        }
+        if (indexOf(value, ':', firstColon + 1, end) == end) {
+            // exactly one colon: IPv4 with port
+            return isPortOrEmpty(value, firstColon, end) && parseIpv4(value, start, firstColon, target);
+        }
+        return parseIpv6(value, start, stripZone(value, start, end), target);
+    }
+
+    private static boolean parseIpv4(final CharSequence value, final int start, final int end, final ParsedIp target) {
+        final long address = ipv4(value, start, end);
+        if (address < 0) {
+            return false;
+        }
+        target.setIpv4((int) address);
+        return true;
+    }
+
+    /**
+     * @return the IPv4 address as unsigned 32 bits, or -1 if invalid
+     */
+    private static long ipv4(final CharSequence value, final int start, final int end) {
+        long address = 0;
+        int octets = 0;
+        int octet = 0;
+        int digits = 0;
+        for (int i = start; i < end; i++) {
+            final char c = value.charAt(i);
+            if (c >= '0' && c <= '9') {
+                octet = octet * 10 + (c - '0');
+                if (++digits > 3 || octet > 255) {
+                    return -1;
+                }
+            } else if (c == '.') {
+                if (digits == 0 || ++octets > 3) {
+                    return -1;
+                }
+                address = (address << 8) | octet;
+                octet = 0;
+                digits = 0;
+            } else {
+                return -1;
+            }
+        }
+        if (digits == 0 || octets != 3) {
+            return -1;
+        }
+        return (address << 8) | octet;
+    }
+
+    private static boolean parseIpv6(final CharSequence value, final int start, final int end, final ParsedIp target) {
+        if (end - start < 2) {
+            return false;
+        }
+        // groups before "::" are put in place directly, groups after it are shifted in from the right
+        long high = 0L;
+        long low = 0L;
+        long tailHigh = 0L;
+        long tailLow = 0L;
+        int groups = 0;
+        boolean compressed = false;
+
+        int i = start;
+        if (value.charAt(i) == ':') {
+            if (value.charAt(i + 1) != ':') {
+                return false;
+            }
+            compressed = true;
+            i += 2;
+        }
+        while (i < end) {
+            int groupEnd = i;
+            int word = 0;
+            while (groupEnd < end && groupEnd - i < 5) {
+                final int digit = hexDigit(value.charAt(groupEnd));
+                if (digit < 0) {
+                    break;
+                }
+                word = (word << 4) | digit;
+                groupEnd++;
+            }
+            final int digits = groupEnd - i;
+            if (groupEnd < end && value.charAt(groupEnd) == '.') {
+                // embedded IPv4 in the last 32 bits
+                final long ipv4 = ipv4(value, i, end);
+                if (ipv4 < 0 || groups > 6) {
+                    return false;
+                }
+                if (compressed) {
+                    tailHigh = (tailHigh << 32) | (tailLow >>> 32);
+                    tailLow = (tailLow << 32) | ipv4;
+                } else {
+                    low |= ipv4;
+                }
+                groups += 2;
+                i = end;
+                break;
+            }
+            if (digits == 0 || digits > 4 || groups == 8) {
+                return false;
+            }
+            if (compressed) {
+                tailHigh = (tailHigh << 16) | (tailLow >>> 48);
+                tailLow = (tailLow << 16) | word;
+            } else if (groups < 4) {
+                high |= (long) word << (48 - 16 * groups);
+            } else {
+                low |= (long) word << (48 - 16 * (groups - 4));
+            }
+            groups++;
+            i = groupEnd;
+            if (i == end) {
+                break;
+            }
+            if (value.charAt(i) != ':' || ++i == end) {
+                // trailing single colon
+                return false;
+            }
+            if (value.charAt(i) == ':') {
+                if (compressed) {
+                    return false;
+                }
+                compressed = true;
+                i++;
+            }
+        }
+        if (compressed ? groups > 7 : groups != 8) {
+            return false;
+        }
+        target.setIpv6(high | tailHigh, low | tailLow);
+        return true;
+    }
+
+    private static int hexDigit(final char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        }
+        if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        return -1;
+    }
+
+    private static int stripZone(final CharSequence value, final int start, final int end) {
+        return indexOf(value, '%', start, end);
+    }
+
+    private static boolean isPortOrEmpty(final CharSequence value, final int start, final int end) {
+        if (start == end) {
+            return true;
+        }
+        if (value.charAt(start) != ':' || start + 1 == end || end - start > 6) {
+            return false;
+        }
+        for (int i = start + 1; i < end; i++) {
+            final char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isBlank(final CharSequence value, final int start, final int end) {
+        for (int i = start; i < end; i++) {
+            if (!Character.isWhitespace(value.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int indexOf(final CharSequence value, final char c, final int start, final int end) {
+        for (int i = start; i < end; i++) {
+            if (value.charAt(i) == c) {
+                return i;
+            }
+        }
+        return end;
+    }
+
+    private static int lastIndexOf(final CharSequence value, final char c, final int end) {
+        for (int i = end - 1; i >= 0; i--) {
+            if (value.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
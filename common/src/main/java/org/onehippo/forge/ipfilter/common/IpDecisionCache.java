@@ -0,0 +1,134 @@
+/*
+ * Copyright 2026 Bloomreach
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onehippo.forge.ipfilter.common;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache of decisions per client IP address and configuration set, keyed by the parsed address and the
+ * {@link AuthObject#getId() id} of the configuration set.
+ * <p>
+ * The cache is split in lock striped segments of open addressing tables with primitive slots. Lookups use optimistic
+ * reads and don't allocate. Entries expire after a fixed time. When the probe window of a key is full, the entry
+ * expiring first is replaced, so the cache never grows beyond its capacity.
+ */
+public final class IpDecisionCache extends IpSlotTable<IpDecisionCache.Segment> {
+
+    /**
+     * Returned by {@link #get(ParsedIp, int)} if there is no (unexpired) entry.
+     */
+    public static final int NONE = -1;
+
+    private final long expireNanos;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param capacity maximum number of entries
+     * @param duration time after which entries expire
+     * @param unit     unit of the duration
+     */
+    public IpDecisionCache(final int capacity, final long duration, final TimeUnit unit) {
+        super(capacity, Segment::new);
+        this.expireNanos = unit.toNanos(duration);
+    }
+
+    /**
+     * @return the cached value for the address and configuration set, or {@link #NONE}
+     */
+    public int get(final ParsedIp ip, final int hostId) {
+        if (!ip.isValid()) {
+            return NONE;
+        }
+        final long high = high(ip);
+        final long low = low(ip);
+        final long hash = hash(high, low, hostId);
+        final int value = (int) segmentFor(hash).get(high, low, hostId, (int) hash, System.nanoTime(), NONE);
+        if (value == NONE) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return value;
+    }
+
+    /**
+     * Caches a non-negative value for the address and configuration set.
+     */
+    public void put(final ParsedIp ip, final int hostId, final int value) {
+        if (!ip.isValid() || value < 0) {
+            return;
+        }
+        final long high = high(ip);
+        final long low = low(ip);
+        final long hash = hash(high, low, hostId);
+        if (segmentFor(hash).put(high, low, hostId, (int) hash, value, System.nanoTime() + expireNanos)) {
+            evictions.increment();
+        }
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return number of unexpired entries replaced because their probe window was full
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * Cached values, with the time stamps of the slots being the expiry times.
+     */
+    static final class Segment extends IpSlotTable.Segment {
+
+        private final int[] values;
+
+        private Segment(final int slots) {
+            super(slots);
+            values = new int[slots];
+        }
+
+        @Override
+        long read(final int slot, final long now) {
+            return stamps[slot] - now > 0L ? values[slot] : NONE;
+        }
+
+        /**
+         * @return TRUE if an unexpired entry of another key was replaced
+         */
+        private boolean put(final long high, final long low, final int hostId, final int hash, final int value,
+                            final long expire) {
+            final long stamp = lock.writeLock();
+            try {
+                final int slot = claim(high, low, hostId, hash, System.nanoTime());
+                final int target = slot < 0 ? ~slot : slot;
+                values[target] = value;
+                stamps[target] = expire == 0L ? 1L : expire;
+                return slot < 0;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+    }
+}
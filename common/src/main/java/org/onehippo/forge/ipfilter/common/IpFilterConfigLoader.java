@@ -23,11 +23,19 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 import javax.jcr.Credentials;
 import javax.jcr.Node;
@@ -42,7 +50,7 @@ import javax.jcr.observation.Event;
 import org.apache.commons.lang3.ArrayUtils;
 import org.hippoecm.repository.util.JcrUtils;
 import org.onehippo.forge.ipfilter.common.file.FileChangeObserver;
-import org.onehippo.forge.ipfilter.common.file.FileWatchService;
+import org.onehippo.forge.ipfilter.common.file.FileWatchRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.core.io.FileSystemResource;
@@ -56,6 +64,8 @@ import com.google.common.collect.ImmutableListMultimap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
+import com.google.common.primitives.Ints;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 public abstract class IpFilterConfigLoader implements FileChangeObserver {
 
@@ -72,16 +82,46 @@ public abstract class IpFilterConfigLoader implements FileChangeObserver {
     private Date lastLoadDate = new Date();
     protected volatile boolean needRefresh = true;
 
-    private final Map<String, AuthObject> data = new ConcurrentHashMap<>();
+    private volatile RuleSnapshot snapshot = RuleSnapshot.EMPTY;
+
+    private final Object loadLock = new Object();
+    private final LongAdder reloads = new LongAdder();
+    private final LongAdder reloadFailures = new LongAdder();
+    private final Object invalidationLock = new Object();
+    private volatile long invalidatedAt;
+    private long invalidatedDuringLoad;
+    private volatile long maxStalenessMillis = IpFilterConstants.DEFAULT_MAX_STALENESS_MILLIS;
+
+    // changes the next load has to parse, guarded by invalidationLock
+    private boolean fullReload = true;
+    private Set<String> changedPaths = new HashSet<>();
+
+    // global properties file, only read again after it changed
+    private volatile boolean globalSettingsChanged = true;
+    private Multimap<String, String> globalSettings = ImmutableListMultimap.of();
+    private final LongAdder parsedNodes = new LongAdder();
+
+    // repository events collected for one reload, guarded by invalidationLock
+    private int batchSize;
+    private long batchOpenedAt;
+    private long batchLastEventAt;
+    private Future<?> batchCheck;
+    private final LongAdder batchedEvents = new LongAdder();
+    private volatile long eventBatchQuietMillis = IpFilterConstants.DEFAULT_EVENT_BATCH_QUIET_MILLIS;
+    private volatile long eventBatchMaxMillis = IpFilterConstants.DEFAULT_EVENT_BATCH_MAX_MILLIS;
+    private volatile int eventBatchMaxSize = IpFilterConstants.DEFAULT_EVENT_BATCH_MAX_SIZE;
+
+    private final ScheduledExecutorService reloadExecutor = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder()
+                    .setNameFormat("ipfilter-config-reload-%d")
+                    .setDaemon(true)
+                    .build());
+    private volatile Future<?> pendingReload;
+
+    private final FileWatchRegistry.Registration fileWatch;
 
-    private final Set<String> forwardedForHostHeaders = Collections.synchronizedSet(new HashSet<>());
     public IpFilterConfigLoader() {
-
-        try {
-            new FileWatchService(this, getWatchedDirectories(), getWatchedFiles());
-        } catch (IOException e) {
-            log.error("Error initializing file watch service", e);
-        }
+        fileWatch = FileWatchRegistry.getInstance().register(this, getWatchedDirectories(), getWatchedFiles());
     }
 
     private Set<String> getWatchedFiles() {
@@ -148,43 +188,354 @@ public abstract class IpFilterConfigLoader implements FileChangeObserver {
         return needRefresh;
     }
 
-    public synchronized Map<String, AuthObject> load() {
-        // check if refresh is needed..if not return local copy
-        if (!needReloading()) {
-            return data;
+    /**
+     * Make sure the configuration gets reloaded if it was invalidated, without blocking the calling thread.
+     * <p>
+     * The reload runs on a background worker while the last loaded snapshot keeps being served. The calling thread only
+     * waits for the reload if nothing was loaded yet, or if the snapshot lags behind an invalidation for longer than
+     * the maximum staleness.
+     */
+    public void refresh() {
+        if (needReloading()) {
+            scheduleReload();
+        }
+        final Future<?> reload = pendingReload;
+        if (reload == null || reload.isDone()) {
+            return;
         }
+        if (snapshot == RuleSnapshot.EMPTY || getStaleness() > maxStalenessMillis) {
+            log.debug("Waiting for configuration reload, staleness is {} ms", getStaleness());
+            try {
+                reload.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                log.error("Error reloading ip filter configuration", e.getCause());
+            }
+        }
+    }
 
-        log.debug("Previously loaded: {}", lastLoadDate);
-        Session session = null;
+    private synchronized void scheduleReload() {
+        if (pendingReload != null && !pendingReload.isDone()) {
+            return;
+        }
         try {
-            session = getSession();
-            if (session == null) {
-                log.warn("Session was null, cannot load ip filter config data");
-                return data;
+            pendingReload = reloadExecutor.submit(this::load);
+        } catch (RejectedExecutionException e) {
+            log.debug("Configuration loader is shut down, not reloading");
+        }
+    }
+
+    public Map<String, AuthObject> load() {
+        synchronized (loadLock) {
+            // check if refresh is needed..if not return local copy
+            if (!needReloading()) {
+                return snapshot.getAuthObjects();
+            }
+            final boolean full;
+            final Set<String> paths;
+            synchronized (invalidationLock) {
+                // invalidations from now on need another load
+                needRefresh = false;
+                invalidatedDuringLoad = 0L;
+                full = fullReload;
+                paths = changedPaths;
+                fullReload = false;
+                changedPaths = new HashSet<>();
+            }
+
+            log.debug("Previously loaded: {}", lastLoadDate);
+            Session session = null;
+            try {
+                session = getSession();
+                if (session == null) {
+                    log.warn("Session was null, cannot load ip filter config data");
+                    reloadFailures.increment();
+                    synchronized (invalidationLock) {
+                        fullReload = true;
+                        needRefresh = true;
+                    }
+                    return snapshot.getAuthObjects();
+                }
+                final Node node = session.getNode(configurationLocation);
+                if (full) {
+                    parseConfig(node);
+                } else {
+                    parseChanges(node, paths);
+                }
+                reloads.increment();
+            } catch (Exception e) {
+                reloadFailures.increment();
+                synchronized (invalidationLock) {
+                    // start from scratch next time
+                    fullReload = true;
+                }
+                log.error("Error loading ip filter configuration", e);
+            } finally {
+                closeSession(session);
+            }
+            synchronized (invalidationLock) {
+                invalidatedAt = invalidatedDuringLoad;
             }
-            final Node node = session.getNode(configurationLocation);
-            parseConfig(node);
-        } catch (Exception e) {
-            log.error("Error loading ip filter configuration", e);
-        } finally {
-            closeSession(session);
+            lastLoadDate = new Date();
+            return snapshot.getAuthObjects();
         }
-        needRefresh = false;
-        lastLoadDate = new Date();
-        return data;
     }
 
-    public synchronized void invalidate(final Event event) {
-        // we invalidate on any event:
-        needRefresh = true;
+    /**
+     * @return number of successful configuration loads
+     */
+    public long getReloadCount() {
+        return reloads.sum();
+    }
+
+    /**
+     * @return number of configuration loads that failed
+     */
+    public long getReloadFailureCount() {
+        return reloadFailures.sum();
+    }
+
+    /**
+     * @return number of configuration nodes parsed by all loads, full and incremental
+     */
+    public long getParsedNodeCount() {
+        return parsedNodes.sum();
+    }
+
+    /**
+     * @return number of repository events that were collected in batches
+     */
+    public long getBatchedEventCount() {
+        return batchedEvents.sum();
+    }
+
+    /**
+     * Collect a repository event in the current batch. Any event invalidates the configuration, but only once the batch
+     * is closed: after {@link #getEventBatchQuietMillis()} without events, {@link #getEventBatchMaxMillis()} after
+     * its first event or at {@link #getEventBatchMaxSize()} events, whichever comes first. The batch is then reloaded
+     * once on the background worker, requests keep using the current snapshot and caches while it is open.
+     * <p>
+     * Only the configuration nodes the events of a batch point at are parsed again, the others are taken over from
+     * the current snapshot.
+     */
+    public void invalidate(final Event event) {
+        collectEvent(getEventPath(event));
+    }
+
+    private static String getEventPath(final Event event) {
+        if (event == null) {
+            return null;
+        }
+        try {
+            return event.getPath();
+        } catch (RepositoryException e) {
+            log.debug("Cannot get path of event, reloading all configuration", e);
+            return null;
+        }
+    }
+
+    /**
+     * Add a change of unknown scope to the current event batch, so all configuration is parsed again.
+     */
+    protected void collectEvent() {
+        collectEvent(null);
+    }
+
+    /**
+     * Add a change to the current event batch, opening one if needed.
+     *
+     * @param path path of the changed item, null if all configuration is to be parsed again
+     */
+    private void collectEvent(final String path) {
+        batchedEvents.increment();
+        final boolean full;
+        synchronized (invalidationLock) {
+            markStale();
+            if (path == null) {
+                fullReload = true;
+            } else if (!fullReload) {
+                changedPaths.add(path);
+            }
+            if (needRefresh && batchSize == 0) {
+                // a reload is due anyway and will see this change
+                return;
+            }
+            final long now = System.currentTimeMillis();
+            if (batchSize == 0) {
+                batchOpenedAt = now;
+            }
+            batchSize++;
+            batchLastEventAt = now;
+            full = batchSize >= eventBatchMaxSize || now - batchOpenedAt >= eventBatchMaxMillis;
+            if (!full && batchCheck == null) {
+                batchCheck = scheduleBatchCheck(eventBatchQuietMillis);
+            }
+        }
+        if (full) {
+            closeBatch();
+        }
+    }
+
+    /**
+     * @return true if repository events are waiting for their batch to be closed
+     */
+    public boolean isBatchOpen() {
+        synchronized (invalidationLock) {
+            return batchSize > 0;
+        }
+    }
+
+    private Future<?> scheduleBatchCheck(final long delayMillis) {
+        try {
+            return reloadExecutor.schedule(this::checkBatch, Math.max(0L, delayMillis), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            log.debug("Configuration loader is shut down, not reloading");
+            return null;
+        }
+    }
+
+    /**
+     * Close the batch if it has been quiet or open for long enough, otherwise check again when it might be.
+     */
+    private void checkBatch() {
+        synchronized (invalidationLock) {
+            batchCheck = null;
+            if (batchSize == 0) {
+                return;
+            }
+            final long now = System.currentTimeMillis();
+            final long closeAt = Math.min(batchLastEventAt + eventBatchQuietMillis, batchOpenedAt + eventBatchMaxMillis);
+            if (closeAt > now) {
+                batchCheck = scheduleBatchCheck(closeAt - now);
+                return;
+            }
+        }
+        closeBatch();
+    }
+
+    private void closeBatch() {
+        synchronized (invalidationLock) {
+            if (batchSize == 0) {
+                return;
+            }
+            log.debug("Closing batch of {} configuration events", batchSize);
+            batchSize = 0;
+            if (batchCheck != null) {
+                batchCheck.cancel(false);
+                batchCheck = null;
+            }
+            requestReload();
+        }
+        scheduleReload();
     }
 
     @Override
     public void update(final File file) {
         log.info("file changed, need refresh: {}", file);
+        globalSettingsChanged = true;
+        markInvalidated();
+    }
+
+    /**
+     * Mark the loaded configuration as outdated, so all of it is parsed again.
+     */
+    protected void markInvalidated() {
+        synchronized (invalidationLock) {
+            fullReload = true;
+            requestReload();
+        }
+    }
+
+    /**
+     * Make the next refresh reload the changes collected so far, called holding the invalidation lock.
+     */
+    private void requestReload() {
+        markStale();
         needRefresh = true;
     }
 
+    /**
+     * Start counting staleness without requesting a reload yet, called holding the invalidation lock.
+     */
+    private void markStale() {
+        final long now = System.currentTimeMillis();
+        if (invalidatedAt == 0L) {
+            invalidatedAt = now;
+        }
+        if (invalidatedDuringLoad == 0L) {
+            invalidatedDuringLoad = now;
+        }
+    }
+
+    /**
+     * @return time in milliseconds of the oldest invalidation not reflected in the snapshot yet, 0 if there is none
+     */
+    public long getInvalidatedAt() {
+        return invalidatedAt;
+    }
+
+    /**
+     * @return milliseconds the snapshot lags behind the oldest invalidation not reflected in it yet, 0 if up to date
+     */
+    public long getStaleness() {
+        final long since = invalidatedAt;
+        return since == 0L ? 0L : Math.max(0L, System.currentTimeMillis() - since);
+    }
+
+    public long getMaxStalenessMillis() {
+        return maxStalenessMillis;
+    }
+
+    /**
+     * @param maxStalenessMillis how long requests may be served from a snapshot lagging behind an invalidation before
+     *                           they wait for the reload
+     */
+    public void setMaxStalenessMillis(final long maxStalenessMillis) {
+        this.maxStalenessMillis = maxStalenessMillis;
+    }
+
+    public long getEventBatchQuietMillis() {
+        return eventBatchQuietMillis;
+    }
+
+    /**
+     * @param eventBatchQuietMillis time without repository events after which a batch is reloaded
+     */
+    public void setEventBatchQuietMillis(final long eventBatchQuietMillis) {
+        this.eventBatchQuietMillis = eventBatchQuietMillis;
+    }
+
+    public long getEventBatchMaxMillis() {
+        return eventBatchMaxMillis;
+    }
+
+    /**
+     * @param eventBatchMaxMillis time after its first repository event a batch is reloaded, even if events keep coming
+     */
+    public void setEventBatchMaxMillis(final long eventBatchMaxMillis) {
+        this.eventBatchMaxMillis = eventBatchMaxMillis;
+    }
+
+    public int getEventBatchMaxSize() {
+        return eventBatchMaxSize;
+    }
+
+    /**
+     * @param eventBatchMaxSize number of repository events after which a batch is reloaded right away
+     */
+    public void setEventBatchMaxSize(final int eventBatchMaxSize) {
+        this.eventBatchMaxSize = eventBatchMaxSize;
+    }
+
+    /**
+     * Stop the reload worker and stop watching the properties file.
+     */
+    public void shutdown() {
+        reloadExecutor.shutdownNow();
+        fileWatch.close();
+    }
+
     private Multimap<String, String> loadGlobalSettings() {
         try {
             // get path from System property or catalina/conf
@@ -288,10 +639,90 @@ public abstract class IpFilterConfigLoader implements FileChangeObserver {
     }
 
     private void parseConfig(final Node node) throws RepositoryException {
-        final Map<String, AuthObject> objects = new HashMap<>();
-        final Multimap<String, String> globalSettings = loadGlobalSettings();
+        // keep configuration order: the first configuration set matching a host wins
+        final Map<String, AuthObject> objects = new LinkedHashMap<>();
+        final Multimap<String, String> globalSettings = getGlobalSettings();
+
+        final NodeIterator nodes = node.getNodes();
+        while (nodes.hasNext()) {
+            final Node configNode = nodes.nextNode();
+            final AuthObject authObject = parse(configNode, globalSettings);
+            if (authObject != null) {
+                objects.put(configNode.getName(), authObject);
+            }
+        }
+        // publish the complete configuration at once, keeping the configuration sets that did not change
+        snapshot = snapshot.next(objects, parseForwardedHostHeaders(node));
+    }
+
+    /**
+     * Parse the configuration nodes with changes below them again and take the other configuration sets over from the
+     * current snapshot.
+     *
+     * @param paths paths of changed items
+     */
+    private void parseChanges(final Node node, final Set<String> paths) throws RepositoryException {
+        final String prefix = node.getPath() + '/';
+        final Set<String> changedNames = new HashSet<>();
+        for (String path : paths) {
+            if (path.startsWith(prefix)) {
+                final String relativePath = path.substring(prefix.length());
+                final int separator = relativePath.indexOf('/');
+                // a property of the configuration root itself is no configuration node and simply not found
+                changedNames.add(getNodeName(separator < 0 ? relativePath : relativePath.substring(0, separator)));
+            } else if (!path.equals(node.getPath())) {
+                log.debug("Change at {} is outside of {}, reloading all configuration", path, node.getPath());
+                parseConfig(node);
+                return;
+            }
+        }
+
+        final Map<String, AuthObject> current = snapshot.getAuthObjects();
+        final Map<String, AuthObject> objects = new LinkedHashMap<>();
+        final Multimap<String, String> globalSettings = getGlobalSettings();
+        int parsed = 0;
+        // iterate all nodes for the configuration order, the names of unchanged ones are all that is read
+        final NodeIterator nodes = node.getNodes();
+        while (nodes.hasNext()) {
+            final Node configNode = nodes.nextNode();
+            final String name = configNode.getName();
+            final AuthObject authObject;
+            if (changedNames.contains(name)) {
+                authObject = parse(configNode, globalSettings);
+                parsed++;
+            } else {
+                authObject = current.get(name);
+            }
+            if (authObject != null) {
+                objects.put(name, authObject);
+            }
+        }
+        log.debug("Parsed {} changed configuration nodes", parsed);
+        snapshot = snapshot.next(objects, parseForwardedHostHeaders(node));
+    }
+
+    /**
+     * @return name of a path element, without same name sibling index
+     */
+    private static String getNodeName(final String pathElement) {
+        final int index = pathElement.indexOf('[');
+        return index < 0 ? pathElement : pathElement.substring(0, index);
+    }
 
-        forwardedForHostHeaders.clear();
+    /**
+     * @return the global settings, read again from the properties file only if it changed
+     */
+    private Multimap<String, String> getGlobalSettings() {
+        if (globalSettingsChanged) {
+            // changes from now on are read by the next load
+            globalSettingsChanged = false;
+            globalSettings = loadGlobalSettings();
+        }
+        return globalSettings;
+    }
+
+    private Set<String> parseForwardedHostHeaders(final Node node) throws RepositoryException {
+        final Set<String> forwardedForHostHeaders = new LinkedHashSet<>();
         if (node.hasProperty(IpFilterConstants.CONFIG_FORWARDED_HOST_HEADER)){
             final Value[] property = node.getProperty(IpFilterConstants.CONFIG_FORWARDED_HOST_HEADER).getValues();
             for (Value value : property) {
@@ -304,20 +735,11 @@ public abstract class IpFilterConfigLoader implements FileChangeObserver {
         }
         // always add default
         forwardedForHostHeaders.add(IpFilterConstants.HEADER_X_FORWARDED_HOST);
-
-        final NodeIterator nodes = node.getNodes();
-        while (nodes.hasNext()) {
-            final Node configNode = nodes.nextNode();
-            final AuthObject authObject = parse(configNode, globalSettings);
-            if (authObject != null) {
-                objects.put(configNode.getName(), authObject);
-            }
-        }
-        data.clear();
-        data.putAll(objects);
+        return forwardedForHostHeaders;
     }
 
     private AuthObject parse(final Node node, final Multimap<String, String> globalSettings) throws RepositoryException {
+        parsedNodes.increment();
         final boolean enabled = JcrUtils.getBooleanProperty(node, IpFilterConstants.CONFIG_ENABLED, true);
         if (!enabled) {
             log.info("Configuration disabled for configuration at {}", node.getPath());
@@ -353,17 +775,40 @@ public abstract class IpFilterConfigLoader implements FileChangeObserver {
             return null;
         }
 
-        final Map<String, Set<String>> ignoredHeaders = parseHeaders(node);
+        final Map<String, Set<String>> ignoredHeaders = new HashMap<>();
+        final Map<String, Set<String>> ignoredHeadersIgnoreCase = new HashMap<>();
+        final Map<String, Set<String>> ignoredHeaderTokens = new HashMap<>();
+        parseHeaders(node, ignoredHeaders, ignoredHeadersIgnoreCase, ignoredHeaderTokens);
 
         final String forwardHeader = JcrUtils.getStringProperty(node, IpFilterConstants.CONFIG_FORWARDED_FOR_HEADER, IpFilterConstants.HEADER_X_FORWARDED_FOR);
+        final long forwardHop = JcrUtils.getLongProperty(node, IpFilterConstants.CONFIG_FORWARDED_FOR_HOP, 0L);
         final boolean matchAll = JcrUtils.getBooleanProperty(node, IpFilterConstants.CONFIG_MATCH_ALL, false);
         final boolean cacheEnabled = JcrUtils.getBooleanProperty(node, IpFilterConstants.CONFIG_CACHE_ENABLED, true);
-
-        return new AuthObject(ignoredPathSet, hostSet, rangesSet, ignoredHeaders, allowCmsUsers, forwardHeader, cacheEnabled, matchAll);
+        final long userCacheSize = JcrUtils.getLongProperty(node, IpFilterConstants.CONFIG_USER_CACHE_SIZE,
+                (long) IpFilterConstants.DEFAULT_USER_CACHE_SIZE);
+        final long userCacheExpire = JcrUtils.getLongProperty(node, IpFilterConstants.CONFIG_USER_CACHE_EXPIRE,
+                (long) IpFilterConstants.CACHE_EXPIRE_IN_MINUTES);
+
+        return AuthObject.builder()
+                .ignoredPaths(ignoredPathSet)
+                .hosts(hostSet)
+                .ranges(rangesSet)
+                .ignoredHeaders(ignoredHeaders)
+                .ignoredHeadersIgnoreCase(ignoredHeadersIgnoreCase)
+                .ignoredHeaderTokens(ignoredHeaderTokens)
+                .allowCmsUsers(allowCmsUsers)
+                .forwardedForHeader(forwardHeader)
+                .forwardedForHop(Ints.saturatedCast(forwardHop))
+                .cacheEnabled(cacheEnabled)
+                .mustMatchAll(matchAll)
+                .userCache(Math.max(0L, userCacheSize), Math.max(0L, userCacheExpire))
+                .name(node.getName())
+                .build();
     }
 
-    private Map<String, Set<String>> parseHeaders(final Node root) throws RepositoryException {
-        final Map<String, Set<String>> ignoredHeaders = new HashMap<>();
+    private void parseHeaders(final Node root, final Map<String, Set<String>> ignoredHeaders,
+                              final Map<String, Set<String>> ignoredHeadersIgnoreCase,
+                              final Map<String, Set<String>> ignoredHeaderTokens) throws RepositoryException {
         final NodeIterator nodes = root.getNodes();
         while (nodes.hasNext()) {
             final Node node = nodes.nextNode();
@@ -372,10 +817,13 @@ public abstract class IpFilterConfigLoader implements FileChangeObserver {
             Collections.addAll(ignoredHeaderSet, ignoredHeaderValues);
             String ignoredHeader = JcrUtils.getStringProperty(node, IpFilterConstants.CONFIG_IGNORED_HEADER, null);
             if (!Strings.isNullOrEmpty(ignoredHeader) && !ignoredHeaderSet.isEmpty()) {
-                addIgnoreHeader(ignoredHeaders, ignoredHeader, ignoredHeaderSet);
+                final boolean ignoreCase = JcrUtils.getBooleanProperty(node, IpFilterConstants.CONFIG_IGNORED_HEADER_IGNORE_CASE, false);
+                addIgnoreHeader(ignoreCase ? ignoredHeadersIgnoreCase : ignoredHeaders, ignoredHeader, ignoredHeaderSet);
+                if (JcrUtils.getBooleanProperty(node, IpFilterConstants.CONFIG_IGNORED_HEADER_TOKENS, false)) {
+                    addIgnoreHeader(ignoredHeaderTokens, ignoredHeader, ignoredHeaderSet);
+                }
             }
         }
-        return ignoredHeaders;
     }
 
     private void addIgnoreHeader(final Map<String, Set<String>> existingMap, final String ignoredHeader, final Set<String> ignoredHeaderSet) {
@@ -422,7 +870,24 @@ public abstract class IpFilterConfigLoader implements FileChangeObserver {
         this.credentials = credentials;
     }
 
+    /**
+     * @return the last loaded configuration, {@link RuleSnapshot#EMPTY} if nothing was loaded yet
+     */
+    public RuleSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * @return index from host name to configuration set, compiled from the last loaded configuration
+     */
+    public HostIndex getHostIndex() {
+        return snapshot.getHostIndex();
+    }
+
+    /**
+     * @return immutable set of headers holding the forwarded host, from the last loaded configuration
+     */
     public Set<String> getForwardedForHostHeaders() {
-        return forwardedForHostHeaders;
+        return snapshot.getForwardedHostHeaderSet();
     }
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2017-2020 Bloomreach
+ * Copyright 2017-2026 Bloomreach
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -24,10 +24,15 @@ public final class IpFilterConstants {
     public static final String CONFIG_IGNORED_PATHS = "ignored-paths";
     public static final String CONFIG_IGNORED_HEADER = "ignored-header";
     public static final String CONFIG_IGNORED_HEADER_VALUES = "ignored-header-values";
+    public static final String CONFIG_IGNORED_HEADER_IGNORE_CASE = "ignored-header-ignore-case";
+    public static final String CONFIG_IGNORED_HEADER_TOKENS = "ignored-header-tokens";
     public static final String CONFIG_MATCH_ALL = "match-all";
     public static final String CONFIG_CACHE_ENABLED = "cache-enabled";
     public static final String CONFIG_FORWARDED_FOR_HEADER = "forwarded-for-header";
+    public static final String CONFIG_FORWARDED_FOR_HOP = "forwarded-for-hop";
     public static final String CONFIG_FORWARDED_HOST_HEADER = "forwarded-host-header";
+    public static final String CONFIG_USER_CACHE_SIZE = "user-cache-size";
+    public static final String CONFIG_USER_CACHE_EXPIRE = "user-cache-expire-minutes";
 
     public static final int BASIC_AUTH_PREFIX_LENGTH = "Basic ".length();
 
@@ -35,13 +40,54 @@ public final class IpFilterConstants {
     public static final String HEADER_X_FORWARDED_HOST = "X-Forwarded-Host";
     public static final String HEADER_AUTHORIZATION = "Authorization";
     public static final String REALM_PARAM = "realm";
+    public static final String IP_CACHE_SIZE_PARAM = "ip-cache-size";
+    public static final String IP_CACHE_EXPIRE_PARAM = "ip-cache-expire-minutes";
+    public static final String DENY_CACHE_SIZE_PARAM = "deny-cache-size";
+    public static final String DENY_CACHE_EXPIRE_PARAM = "deny-cache-expire-minutes";
+    public static final String RETRY_AFTER_PARAM = "retry-after-seconds";
+    public static final String AUTH_THREADS_PARAM = "auth-threads";
+    public static final String AUTH_QUEUE_SIZE_PARAM = "auth-queue-size";
+    public static final String AUTH_TIMEOUT_PARAM = "auth-timeout-millis";
+    public static final String AUTH_TIMEOUT_STATUS_PARAM = "auth-timeout-status";
+    public static final String THROTTLE_SIZE_PARAM = "throttle-size";
+    public static final String THROTTLE_BURST_PARAM = "throttle-burst";
+    public static final String THROTTLE_RATE_PARAM = "throttle-failures-per-minute";
+    public static final String THROTTLE_PER_USER_PARAM = "throttle-per-user";
+    public static final String THROTTLE_STATUS_PARAM = "throttle-status";
+    public static final String AUTH_TOKEN_SECRET_PARAM = "auth-token-secret";
+    public static final String AUTH_TOKEN_COOKIE_PARAM = "auth-token-cookie";
+    public static final String AUTH_TOKEN_MINUTES_PARAM = "auth-token-minutes";
+    public static final String AUTH_TOKEN_SECURE_PARAM = "auth-token-secure";
 
     public static final String REPOSITORY_ADDRESS_PARAM = "repository-address";
     public static final String DEFAULT_REPOSITORY_ADDRESS = "vm://";
+    public static final String REPOSITORY_FAILURE_THRESHOLD_PARAM = "repository-failure-threshold";
+    public static final String REPOSITORY_RETRY_PARAM = "repository-retry-seconds";
+    public static final int DEFAULT_REPOSITORY_FAILURE_THRESHOLD = 3;
+    public static final int DEFAULT_REPOSITORY_RETRY_SECONDS = 30;
 
     public static final int CACHE_SITE = 100;
     public static final int CACHE_EXPIRE_IN_MINUTES = 30;
     public static final int CACHE_EXPIRES_IN_DAYS = 30;
+    public static final int UNKNOWN_HOST_CACHE_SIZE = 1000;
+    public static final int DEFAULT_IP_CACHE_SIZE = 10000;
+    public static final int DEFAULT_USER_CACHE_SIZE = 1000;
+    public static final int DEFAULT_DENY_CACHE_SIZE = 10000;
+    public static final int DEFAULT_DENY_CACHE_EXPIRE_IN_MINUTES = 5;
+    public static final long DEFAULT_MAX_STALENESS_MILLIS = 30000L;
+    public static final long DEFAULT_EVENT_BATCH_QUIET_MILLIS = 250L;
+    public static final long DEFAULT_EVENT_BATCH_MAX_MILLIS = 2000L;
+    public static final int DEFAULT_EVENT_BATCH_MAX_SIZE = 1000;
+    public static final int DEFAULT_RETRY_AFTER_SECONDS = 5;
+    public static final int DEFAULT_AUTH_THREADS = 8;
+    public static final int DEFAULT_AUTH_QUEUE_SIZE = 64;
+    public static final int DEFAULT_AUTH_TIMEOUT_MILLIS = 3000;
+    public static final int DEFAULT_THROTTLE_SIZE = 10000;
+    public static final int DEFAULT_THROTTLE_BURST = 10;
+    public static final int DEFAULT_THROTTLE_RATE = 10;
+    public static final String DEFAULT_AUTH_TOKEN_COOKIE = "ipfilter-auth";
+    public static final int DEFAULT_AUTH_TOKEN_MINUTES = 10;
+    public static final String AUTH_TOKEN_SAME_SITE = "Lax";
 
     public static final String PROPERTIES_NAME = "hippo-ipfilter.properties";
 
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2026 Bloomreach
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onehippo.forge.ipfilter.common;
+
+import java.util.Map;
+
+/**
+ * Statistics of an IP filter, registered in JMX as
+ * <code>org.onehippo.forge.ipfilter:type=IpFilter,name=&lt;context path&gt;/&lt;filter name&gt;</code>.
+ */
+public interface IpFilterMXBean {
+
+    /**
+     * @return number of decisions per status
+     */
+    Map<String, Long> getDecisions();
+
+    /**
+     * @return number of decisions per configuration set and status, keyed by <code>name:STATUS</code>
+     */
+    Map<String, Long> getDecisionsByConfiguration();
+
+    long getIgnoredByPath();
+
+    long getIgnoredByHeader();
+
+    long getHostCacheHits();
+
+    long getHostCacheMisses();
+
+    long getHostCacheEvictions();
+
+    long getUnknownHostCacheHits();
+
+    long getUnknownHostCacheMisses();
+
+    long getIpCacheHits();
+
+    long getIpCacheMisses();
+
+    long getIpCacheEvictions();
+
+    long getDenyCacheHits();
+
+    long getDenyCacheMisses();
+
+    long getDenyCacheEvictions();
+
+    long getUserCacheHits();
+
+    long getUserCacheMisses();
+
+    long getUserCacheEvictions();
+
+    long getAuthAttempts();
+
+    long getAuthFailures();
+
+    long getAuthErrors();
+
+    long getAuthTimeouts();
+
+    long getAuthRejections();
+
+    long getAuthThrottled();
+
+    long getReloads();
+
+    long getReloadFailures();
+
+    long getConfigurationVersion();
+
+    long getConfigurationStalenessMillis();
+
+    /**
+     * @return count, 50th, 90th, 99th and 99.9th percentile and maximum latency in nanoseconds per stage of the
+     * filter, keyed by <code>STAGE.count</code>, <code>STAGE.p50</code> etc.
+     */
+    Map<String, Long> getLatencyPercentiles();
+
+    /**
+     * Starts recording latencies from scratch.
+     */
+    void resetLatencies();
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright 2026 Bloomreach
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onehippo.forge.ipfilter.common;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of the decisions of a filter and of the authentications it did, and latency histograms of the stages of a
+ * request. Counting is a striped increment, cheap enough to be always on.
+ */
+public final class IpFilterMetrics {
+
+    /**
+     * Stages of the filter with their own latency histogram.
+     */
+    public enum Stage {
+        /**
+         * Reading the host from the request and resolving its configuration set
+         */
+        HOST,
+        /**
+         * Checking ignored paths and headers
+         */
+        IGNORE,
+        /**
+         * Reading the client IP and matching it with the caches and the whitelist
+         */
+        IP,
+        /**
+         * Checking the credentials, including waiting for the repository
+         */
+        AUTHENTICATION,
+        /**
+         * Writing the response of a refused request
+         */
+        DENIAL
+    }
+
+    private static final Status[] STATUSES = Status.values();
+    private static final Stage[] STAGES = Stage.values();
+    private static final double[] PERCENTILES = {50.0, 90.0, 99.0, 99.9};
+    private static final String[] PERCENTILE_NAMES = {"p50", "p90", "p99", "p999"};
+
+    private final LongAdder[] decisions = newCounters();
+    private final ConcurrentMap<String, LongAdder[]> decisionsByConfiguration = new ConcurrentHashMap<>();
+    private final LongAdder ignoredByPath = new LongAdder();
+    private final LongAdder ignoredByHeader = new LongAdder();
+    private final LongAdder authAttempts = new LongAdder();
+    private final LongAdder authFailures = new LongAdder();
+    private final LongAdder authErrors = new LongAdder();
+    private final LongAdder authTimeouts = new LongAdder();
+    private final LongAdder authRejections = new LongAdder();
+    private final LongAdder authThrottled = new LongAdder();
+    private final LatencyHistogram[] latencies = new LatencyHistogram[STAGES.length];
+
+    public IpFilterMetrics() {
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * @param stage      stage of the request
+     * @param startNanos {@link System#nanoTime()} at the start of the stage
+     */
+    public void recordLatency(final Stage stage, final long startNanos) {
+        latencies[stage.ordinal()].record(System.nanoTime() - startNanos);
+    }
+
+    public LatencyHistogram getLatency(final Stage stage) {
+        return latencies[stage.ordinal()];
+    }
+
+    /**
+     * @return count, percentiles and maximum in nanoseconds per stage, keyed by <code>STAGE.count</code>,
+     * <code>STAGE.p50</code>, <code>STAGE.p90</code>, <code>STAGE.p99</code>, <code>STAGE.p999</code> and
+     * <code>STAGE.max</code>
+     */
+    public Map<String, Long> getLatencyPercentiles() {
+        final Map<String, Long> values = new TreeMap<>();
+        for (Stage stage : STAGES) {
+            final LatencyHistogram.Snapshot snapshot = latencies[stage.ordinal()].snapshot();
+            values.put(stage.name() + ".count", snapshot.getCount());
+            for (int i = 0; i < PERCENTILES.length; i++) {
+                values.put(stage.name() + '.' + PERCENTILE_NAMES[i], snapshot.getValueAtPercentile(PERCENTILES[i]));
+            }
+            values.put(stage.name() + ".max", snapshot.getMax());
+        }
+        return values;
+    }
+
+    public void resetLatencies() {
+        for (LatencyHistogram latency : latencies) {
+            latency.reset();
+        }
+    }
+
+    /**
+     * @param authObject configuration set of the host, {@link AuthObject#INVALID} if there is none
+     * @param status     decision for the request
+     */
+    public void decision(final AuthObject authObject, final Status status) {
+        decisions[status.ordinal()].increment();
+        final String name = authObject == null ? AuthObject.INVALID.getName() : authObject.getName();
+        LongAdder[] counters = decisionsByConfiguration.get(name);
+        if (counters == null) {
+            counters = decisionsByConfiguration.computeIfAbsent(name, key -> newCounters());
+        }
+        counters[status.ordinal()].increment();
+    }
+
+    public void ignoredByPath() {
+        ignoredByPath.increment();
+    }
+
+    public void ignoredByHeader() {
+        ignoredByHeader.increment();
+    }
+
+    /**
+     * A login at the repository was started.
+     */
+    public void authAttempt() {
+        authAttempts.increment();
+    }
+
+    /**
+     * The repository rejected the credentials.
+     */
+    public void authFailure() {
+        authFailures.increment();
+    }
+
+    /**
+     * No repository was available to check the credentials.
+     */
+    public void authError() {
+        authErrors.increment();
+    }
+
+    public void authTimeout() {
+        authTimeouts.increment();
+    }
+
+    public void authRejected() {
+        authRejections.increment();
+    }
+
+    public void authThrottled() {
+        authThrottled.increment();
+    }
+
+    public long getDecisionCount(final Status status) {
+        return decisions[status.ordinal()].sum();
+    }
+
+    /**
+     * @return number of decisions per status
+     */
+    public Map<String, Long> getDecisionCounts() {
+        final Map<String, Long> counts = new TreeMap<>();
+        for (Status status : STATUSES) {
+            counts.put(status.name(), decisions[status.ordinal()].sum());
+        }
+        return counts;
+    }
+
+    /**
+     * @return number of decisions per configuration set and status, keyed by <code>name:STATUS</code>
+     */
+    public Map<String, Long> getDecisionCountsByConfiguration() {
+        final Map<String, Long> counts = new TreeMap<>();
+        for (Map.Entry<String, LongAdder[]> entry : decisionsByConfiguration.entrySet()) {
+            for (Status status : STATUSES) {
+                final long count = entry.getValue()[status.ordinal()].sum();
+                if (count > 0) {
+                    counts.put(entry.getKey() + ':' + status.name(), count);
+                }
+            }
+        }
+        return counts;
+    }
+
+    public long getIgnoredByPathCount() {
+        return ignoredByPath.sum();
+    }
+
+    public long getIgnoredByHeaderCount() {
+        return ignoredByHeader.sum();
+    }
+
+    public long getAuthAttemptCount() {
+        return authAttempts.sum();
+    }
+
+    public long getAuthFailureCount() {
+        return authFailures.sum();
+    }
+
+    public long getAuthErrorCount() {
+        return authErrors.sum();
+    }
+
+    public long getAuthTimeoutCount() {
+        return authTimeouts.sum();
+    }
+
+    public long getAuthRejectedCount() {
+        return authRejections.sum();
+    }
+
+    public long getAuthThrottledCount() {
+        return authThrottled.sum();
+    }
+
+    private static LongAdder[] newCounters() {
+        final LongAdder[] counters = new LongAdder[STATUSES.length];
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] = new LongAdder();
+        }
+        return counters;
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2026 Bloomreach
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onehippo.forge.ipfilter.common;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * JMX view on the metrics and caches of a filter, reading them on access only.
+ */
+final class IpFilterStatistics implements IpFilterMXBean {
+
+    private static final Logger log = LoggerFactory.getLogger(IpFilterStatistics.class);
+
+    private static final String DOMAIN = "org.onehippo.forge.ipfilter";
+
+    private final BaseIpFilter filter;
+    private ObjectName objectName;
+
+    IpFilterStatistics(final BaseIpFilter filter) {
+        this.filter = filter;
+    }
+
+    /**
+     * Registers in the platform MBean server, logging a warning if that fails.
+     */
+    void register(final String name) {
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            final ObjectName candidate = new ObjectName(DOMAIN + ":type=IpFilter,name=" + ObjectName.quote(name));
+            if (server.isRegistered(candidate)) {
+                // left behind by an earlier instance of the same filter, e.g. after a redeploy
+                server.unregisterMBean(candidate);
+            }
+            server.registerMBean(this, candidate);
+            objectName = candidate;
+        } catch (JMException | RuntimeException e) {
+            log.warn("Cannot register IP filter statistics in JMX as {}", name, e);
+        }
+    }
+
+    void unregister() {
+        if (objectName == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (JMException | RuntimeException e) {
+            log.debug("Cannot unregister {}", objectName, e);
+        }
+        objectName = null;
+    }
+
+    @Override
+    public Map<String, Long> getDecisions() {
+        return filter.getMetrics().getDecisionCounts();
+    }
+
+    @Override
+    public Map<String, Long> getDecisionsByConfiguration() {
+        return filter.getMetrics().getDecisionCountsByConfiguration();
+    }
+
+    @Override
+    public long getIgnoredByPath() {
+        return filter.getMetrics().getIgnoredByPathCount();
+    }
+
+    @Override
+    public long getIgnoredByHeader() {
+        return filter.getMetrics().getIgnoredByHeaderCount();
+    }
+
+    @Override
+    public long getHostCacheHits() {
+        return filter.getHostCacheStats().hitCount();
+    }
+
+    @Override
+    public long getHostCacheMisses() {
+        return filter.getHostCacheStats().missCount();
+    }
+
+    @Override
+    public long getHostCacheEvictions() {
+        return filter.getHostCacheStats().evictionCount();
+    }
+
+    @Override
+    public long getUnknownHostCacheHits() {
+        return filter.getUnknownHostCacheStats().hitCount();
+    }
+
+    @Override
+    public long getUnknownHostCacheMisses() {
+        return filter.getUnknownHostCacheStats().missCount();
+    }
+
+    @Override
+    public long getIpCacheHits() {
+        return filter.getIpCacheHitCount();
+    }
+
+    @Override
+    public long getIpCacheMisses() {
+        return filter.getIpCacheMissCount();
+    }
+
+    @Override
+    public long getIpCacheEvictions() {
+        return filter.getIpCacheEvictionCount();
+    }
+
+    @Override
+    public long getDenyCacheHits() {
+        return filter.getDenyCacheHitCount();
+    }
+
+    @Override
+    public long getDenyCacheMisses() {
+        return filter.getDenyCacheMissCount();
+    }
+
+    @Override
+    public long getDenyCacheEvictions() {
+        return filter.getDenyCacheEvictionCount();
+    }
+
+    @Override
+    public long getUserCacheHits() {
+        return filter.getUserCacheStats().hitCount();
+    }
+
+    @Override
+    public long getUserCacheMisses() {
+        return filter.getUserCacheStats().missCount();
+    }
+
+    @Override
+    public long getUserCacheEvictions() {
+        return filter.getUserCacheStats().evictionCount();
+    }
+
+    @Override
+    public long getAuthAttempts() {
+        return filter.getMetrics().getAuthAttemptCount();
+    }
+
+    @Override
+    public long getAuthFailures() {
+        return filter.getMetrics().getAuthFailureCount();
+    }
+
+    @Override
+    public long getAuthErrors() {
+        return filter.getMetrics().getAuthErrorCount();
+    }
+
+    @Override
+    public long getAuthTimeouts() {
+        return filter.getMetrics().getAuthTimeoutCount();
+    }
+
+    @Override
+    public long getAuthRejections() {
+        return filter.getMetrics().getAuthRejectedCount();
+    }
+
+    @Override
+    public long getAuthThrottled() {
+        return filter.getMetrics().getAuthThrottledCount();
+    }
+
+    @Override
+    public long getReloads() {
+        final IpFilterConfigLoader loader = filter.configLoader;
+        return loader == null ? 0L : loader.getReloadCount();
+    }
+
+    @Override
+    public long getReloadFailures() {
+        final IpFilterConfigLoader loader = filter.configLoader;
+        return loader == null ? 0L : loader.getReloadFailureCount();
+    }
+
+    @Override
+    public long getConfigurationVersion() {
+        final IpFilterConfigLoader loader = filter.configLoader;
+        return loader == null ? 0L : loader.getSnapshot().getVersion();
+    }
+
+    @Override
+    public long getConfigurationStalenessMillis() {
+        final IpFilterConfigLoader loader = filter.configLoader;
+        return loader == null ? 0L : loader.getStaleness();
+    }
+
+    @Override
+    public Map<String, Long> getLatencyPercentiles() {
+        return filter.getMetrics().getLatencyPercentiles();
+    }
+
+    @Override
+    public void resetLatencies() {
+        filter.getMetrics().resetLatencies();
+    }
+}
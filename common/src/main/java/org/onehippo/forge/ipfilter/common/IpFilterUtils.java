@@ -1,5 +1,5 @@
 /*
- * Copyright 2017-2020 Bloomreach
+ * Copyright 2017-2026 Bloomreach
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -15,7 +15,6 @@
  */
 package org.onehippo.forge.ipfilter.common;
 
-import com.google.common.base.Splitter;
 import com.google.common.base.Strings;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -24,12 +23,10 @@ import jakarta.servlet.FilterConfig;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.util.Iterator;
 
 public final class IpFilterUtils {
 
     private static final Logger log = LoggerFactory.getLogger(IpFilterUtils.class);
-    private static final Splitter COMMA_SPLITTER = Splitter.on(',').trimResults().omitEmptyStrings();
 
 
     private IpFilterUtils() {
@@ -46,6 +43,19 @@ public final class IpFilterUtils {
         return value;
     }
 
+    public static int getIntParameter(final FilterConfig filterConfig, final String paramName, final int defaultValue) {
+        final String value = getParameter(filterConfig, paramName, null);
+        if (Strings.isNullOrEmpty(value)) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            log.warn("Invalid value {} for parameter {}, using {}", value, paramName, defaultValue);
+            return defaultValue;
+        }
+    }
+
 
     public static String getIp(HttpServletRequest request, final String name) {
         final String headerName = Strings.isNullOrEmpty(name) ? IpFilterConstants.HEADER_X_FORWARDED_FOR : name;
@@ -54,14 +64,56 @@ public final class IpFilterUtils {
             log.debug("Header: {} was empty", headerName);
             return request.getRemoteAddr();
         }
-        final Iterable<String> ipAddresses = COMMA_SPLITTER.split(header);
-        final Iterator<String> iterator = ipAddresses.iterator();
-        if (iterator.hasNext()) {
-            return iterator.next();
+        // first non-empty, comma separated value
+        int start = 0;
+        while (start < header.length()) {
+            int end = header.indexOf(',', start);
+            if (end < 0) {
+                end = header.length();
+            }
+            final String ip = header.substring(start, end).trim();
+            if (!ip.isEmpty()) {
+                return ip;
+            }
+            start = end + 1;
         }
         return request.getRemoteAddr();
     }
 
+    /**
+     * Parse the client IP, i.e. the first hop of the forwarded-for header or the remote address if the header is
+     * absent, into the given holder, without allocating and without resolving host names.
+     *
+     * @param request the request
+     * @param name    name of the forwarded-for header, defaults to X-Forwarded-For
+     * @param target  holder of the result
+     * @return TRUE if a valid IP address was found
+     */
+    public static boolean getClientIp(final HttpServletRequest request, final String name, final ParsedIp target) {
+        return getClientIp(request, name, 0, target);
+    }
+
+    /**
+     * Parse the client IP, i.e. the given hop of the forwarded-for header or the remote address if the header is
+     * absent, into the given holder, without allocating and without resolving host names.
+     *
+     * @param request the request
+     * @param name    name of the forwarded-for header, defaults to X-Forwarded-For
+     * @param hop     hop of the header, counting from 0 for the first hop, or negative to count from the end
+     * @param target  holder of the result
+     * @return TRUE if a valid IP address was found
+     */
+    public static boolean getClientIp(final HttpServletRequest request, final String name, final int hop,
+                                      final ParsedIp target) {
+        final String headerName = Strings.isNullOrEmpty(name) ? IpFilterConstants.HEADER_X_FORWARDED_FOR : name;
+        final String header = request.getHeader(headerName);
+        if (Strings.isNullOrEmpty(header)) {
+            log.debug("Header: {} was empty", headerName);
+            return IpAddressParser.parse(request.getRemoteAddr(), target);
+        }
+        return IpAddressParser.parseHop(header, hop, target);
+    }
+
 
 
     public static String getPath(final HttpServletRequest request) {
@@ -111,4 +163,31 @@ public final class IpFilterUtils {
         response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "You are not authorized.");
         response.flushBuffer();
     }
+
+    /**
+     * Handle the case of authentication not being possible right now.
+     *
+     * @param response          the HttpServletResponse
+     * @param retryAfterSeconds value of the Retry-After header
+     * @throws IOException Thrown if working with the response goes wrong
+     */
+    public static void handleServiceUnavailable(final HttpServletResponse response, final int retryAfterSeconds) throws IOException {
+        response.setHeader("Retry-After", String.valueOf(retryAfterSeconds));
+        response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Please try again later.");
+        response.flushBuffer();
+    }
+
+    /**
+     * Handle the case of a client with too many failed logins.
+     *
+     * @param response          the HttpServletResponse
+     * @param retryAfterSeconds value of the Retry-After header
+     * @throws IOException Thrown if working with the response goes wrong
+     */
+    public static void handleTooManyRequests(final HttpServletResponse response, final int retryAfterSeconds) throws IOException {
+        response.setHeader("Retry-After", String.valueOf(retryAfterSeconds));
+        // no constant in the servlet API
+        response.sendError(429, "Too many failed logins, please try again later.");
+        response.flushBuffer();
+    }
 }
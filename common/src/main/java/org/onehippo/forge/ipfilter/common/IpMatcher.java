@@ -15,13 +15,16 @@
  */
 package org.onehippo.forge.ipfilter.common;
 
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
 import com.google.common.base.Objects;
-import org.springframework.security.web.util.matcher.IpAddressMatcher;
 
 import static org.apache.commons.lang3.StringUtils.trimToNull;
 
 /**
- * Checks if IP addresses matches with the IP range. Relies on org.springframework.security.web.util.IpAddressMatcher
+ * Checks if IP addresses matches with the IP range. Addresses are parsed by {@link IpAddressParser}, so matching never
+ * resolves host names.
  */
 public final class IpMatcher {
 
@@ -40,14 +43,27 @@ public final class IpMatcher {
     }
 
     /**
-     * IP matcher
+     * IP range
      */
-    private final IpAddressMatcher ipMatcher;
+    private final String ipRange;
 
     /**
-     * IP range
+     * Network address of the IP range, 4 bytes for IPv4 and 16 bytes for IPv6
      */
-    private final String ipRange;
+    private final byte[] address;
+
+    /**
+     * Number of leading bits of the network address that must match
+     */
+    private final int prefixLength;
+
+    /**
+     * Network address as high and low 64 bits (IPv4 in the top 32 bits), masked by the prefix length
+     */
+    private final long networkHigh;
+    private final long networkLow;
+    private final long highMask;
+    private final long lowMask;
 
     /**
      * Constructor
@@ -56,8 +72,59 @@ public final class IpMatcher {
      * @throws IllegalArgumentException If the IP range is malformed
      */
     private IpMatcher(String ipRange) {
-        ipMatcher = new IpAddressMatcher(ipRange);
         this.ipRange = ipRange;
+
+        final int slash = ipRange.indexOf('/');
+        address = parseAddress(slash < 0 ? ipRange : ipRange.substring(0, slash));
+        final int bits = address.length * 8;
+        prefixLength = slash < 0 ? bits : parsePrefixLength(ipRange.substring(slash + 1), bits);
+
+        long high = 0L;
+        long low = 0L;
+        for (int i = 0; i < address.length; i++) {
+            final long b = address[i] & 0xFFL;
+            if (i < 8) {
+                high |= b << (56 - i * 8);
+            } else {
+                low |= b << (56 - (i - 8) * 8);
+            }
+        }
+        highMask = IpRangeTrie.highMask(prefixLength);
+        lowMask = IpRangeTrie.lowMask(prefixLength);
+        networkHigh = high & highMask;
+        networkLow = low & lowMask;
+    }
+
+    private static byte[] parseAddress(final String address) {
+        final ParsedIp parsed = new ParsedIp();
+        if (IpAddressParser.parse(address, parsed)) {
+            final long high = parsed.isIpv4() ? (long) parsed.getIpv4() << 32 : parsed.getHigh();
+            final long low = parsed.getLow();
+            final byte[] bytes = new byte[parsed.isIpv4() ? 4 : 16];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = (byte) (i < 8 ? high >>> (56 - i * 8) : low >>> (56 - (i - 8) * 8));
+            }
+            return bytes;
+        }
+        // not a literal, configured ranges may still contain host names, resolved once at configuration time
+        try {
+            return InetAddress.getByName(address).getAddress();
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException("Failed to parse address " + address, e);
+        }
+    }
+
+    private static int parsePrefixLength(final String value, final int bits) {
+        final int prefixLength;
+        try {
+            prefixLength = Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid prefix length " + value, e);
+        }
+        if (prefixLength < 0 || prefixLength > bits) {
+            throw new IllegalArgumentException("IP address has " + bits + " bits, prefix length " + prefixLength + " is invalid");
+        }
+        return prefixLength;
     }
 
 
@@ -85,17 +152,57 @@ public final class IpMatcher {
         return ipRange;
     }
 
+    /**
+     * Network address getter
+     *
+     * @return copy of the network address, 4 bytes for IPv4 and 16 bytes for IPv6
+     */
+    public byte[] getAddress() {
+        return address.clone();
+    }
+
+    /**
+     * Prefix length getter
+     *
+     * @return number of leading bits of the network address that must match
+     */
+    public int getPrefixLength() {
+        return prefixLength;
+    }
+
     /**
      * Checks if the IP range matches the IP address
      *
      * @param ipAddress IP address
-     * @return TRUE if the IP is in the IP range
-     * @throws IllegalArgumentException If the IP is malformed
+     * @return TRUE if the IP is in the IP range, FALSE if not or if the IP is malformed
      */
     public boolean matches(String ipAddress) {
-        String ipAddressTrimmed = trimToNull(ipAddress);
-        return ipAddressTrimmed != null && ipMatcher.matches(ipAddressTrimmed);
+        final ParsedIp parsed = new ParsedIp();
+        return IpAddressParser.parse(ipAddress, parsed) && matches(parsed);
     }
 
-
+    /**
+     * Checks if the IP range matches the parsed IP address
+     *
+     * @param ipAddress parsed IP address
+     * @return TRUE if the IP is in the IP range
+     */
+    public boolean matches(ParsedIp ipAddress) {
+        final long high;
+        final long low;
+        if (address.length == 4) {
+            if (!ipAddress.isIpv4()) {
+                return false;
+            }
+            high = (ipAddress.getIpv4() & 0xFFFFFFFFL) << 32;
+            low = 0L;
+        } else {
+            if (!ipAddress.isIpv6()) {
+                return false;
+            }
+            high = ipAddress.getHigh();
+            low = ipAddress.getLow();
+        }
+        return (high & highMask) == networkHigh && (low & lowMask) == networkLow;
+    }
 }
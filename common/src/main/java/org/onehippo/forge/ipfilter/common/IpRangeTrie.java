@@ -0,0 +1,228 @@
+/*
+ * Copyright 2026 Bloomreach
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onehippo.forge.ipfilter.common;
+
+import java.util.Collection;
+
+/**
+ * Path compressed binary (Patricia) trie over all IP ranges of one configuration set, compiled once when the
+ * {@link AuthObject} is created.
+ * <p>
+ * IPv4 and IPv6 share one address space in which the address family is the first branch, so an IPv4 range never
+ * matches an IPv6 address and vice versa, just like {@link IpMatcher#matches(String)}. A lookup parses the address
+ * once and walks at most 32 (IPv4) or 128 (IPv6) bits, regardless of the number of ranges.
+ * <p>
+ * Instances are immutable after compilation and safe for concurrent use.
+ */
+public final class IpRangeTrie {
+
+    public static final IpRangeTrie EMPTY = new IpRangeTrie(null, null, 0);
+
+    private static final int IPV4_BITS = 32;
+    private static final int IPV6_BITS = 128;
+
+    private final Node ipv4Root;
+    private final Node ipv6Root;
+    private final int size;
+
+    private IpRangeTrie(final Node ipv4Root, final Node ipv6Root, final int size) {
+        this.ipv4Root = ipv4Root;
+        this.ipv6Root = ipv6Root;
+        this.size = size;
+    }
+
+    /**
+     * Compiles the IP matchers into a trie.
+     *
+     * @param ipMatchers the IP ranges
+     * @return the trie, {@link #EMPTY} if there are no ranges
+     */
+    public static IpRangeTrie compile(final Collection<IpMatcher> ipMatchers) {
+        if (ipMatchers == null || ipMatchers.isEmpty()) {
+            return EMPTY;
+        }
+        Node ipv4Root = null;
+        Node ipv6Root = null;
+        for (IpMatcher matcher : ipMatchers) {
+            final long[] key = toKey(matcher.getAddress());
+            final int prefixLength = matcher.getPrefixLength();
+            if (matcher.getAddress().length == 4) {
+                ipv4Root = insert(ipv4Root, key[0], key[1], prefixLength);
+            } else {
+                ipv6Root = insert(ipv6Root, key[0], key[1], prefixLength);
+            }
+        }
+        return new IpRangeTrie(ipv4Root, ipv6Root, ipMatchers.size());
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return the number of IP ranges this trie was compiled from
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks if the IP address is in any of the IP ranges. The address must be a literal, host names are never
+     * resolved.
+     *
+     * @param ipAddress IP address
+     * @return TRUE if the IP is in one of the IP ranges, FALSE if not or if it is not a valid IP literal
+     */
+    public boolean matches(final String ipAddress) {
+        final ParsedIp parsed = new ParsedIp();
+        return !isEmpty() && IpAddressParser.parse(ipAddress, parsed) && parsed.matches(this);
+    }
+
+    /**
+     * Checks if the IPv4 address, as 32 bit integer in network byte order, is in any of the IP ranges.
+     */
+    public boolean matchesIpv4(final int address) {
+        return lookup(ipv4Root, (address & 0xFFFFFFFFL) << 32, 0L, IPV4_BITS);
+    }
+
+    /**
+     * Checks if the IPv6 address, given as its high and low 64 bits, is in any of the IP ranges.
+     */
+    public boolean matchesIpv6(final long high, final long low) {
+        return lookup(ipv6Root, high, low, IPV6_BITS);
+    }
+
+    private static boolean lookup(Node node, final long high, final long low, final int maxBits) {
+        while (node != null) {
+            if (!node.covers(high, low)) {
+                return false;
+            }
+            if (node.terminal) {
+                return true;
+            }
+            if (node.bits >= maxBits) {
+                return false;
+            }
+            node = bit(high, low, node.bits) == 0 ? node.zero : node.one;
+        }
+        return false;
+    }
+
+    private static Node insert(final Node node, final long high, final long low, final int bits) {
+        if (node == null) {
+            return new Node(high, low, bits, true);
+        }
+        final int common = Math.min(commonPrefixLength(node.high, node.low, high, low), Math.min(node.bits, bits));
+        if (common == node.bits) {
+            if (node.bits == bits) {
+                // same prefix: everything below is covered by it now
+                node.terminal = true;
+                node.zero = null;
+                node.one = null;
+                return node;
+            }
+            if (node.terminal) {
+                // already covered by a wider range
+                return node;
+            }
+            if (bit(high, low, node.bits) == 0) {
+                node.zero = insert(node.zero, high, low, bits);
+            } else {
+                node.one = insert(node.one, high, low, bits);
+            }
+            return node;
+        }
+        if (common == bits) {
+            // new range is wider than the existing node and covers it
+            return new Node(high, low, bits, true);
+        }
+        final Node parent = new Node(high, low, common, false);
+        final Node leaf = new Node(high, low, bits, true);
+        if (bit(high, low, common) == 0) {
+            parent.zero = leaf;
+            parent.one = node;
+        } else {
+            parent.zero = node;
+            parent.one = leaf;
+        }
+        return parent;
+    }
+
+    private static long[] toKey(final byte[] address) {
+        long high = 0L;
+        long low = 0L;
+        for (int i = 0; i < address.length; i++) {
+            final long b = address[i] & 0xFFL;
+            if (i < 8) {
+                high |= b << (56 - i * 8);
+            } else {
+                low |= b << (56 - (i - 8) * 8);
+            }
+        }
+        return new long[]{high, low};
+    }
+
+    private static int bit(final long high, final long low, final int index) {
+        return index < 64 ? (int) ((high >>> (63 - index)) & 1L) : (int) ((low >>> (127 - index)) & 1L);
+    }
+
+    private static int commonPrefixLength(final long high1, final long low1, final long high2, final long low2) {
+        final long highDiff = high1 ^ high2;
+        if (highDiff != 0) {
+            return Long.numberOfLeadingZeros(highDiff);
+        }
+        return 64 + Long.numberOfLeadingZeros(low1 ^ low2);
+    }
+
+    static long highMask(final int bits) {
+        if (bits <= 0) {
+            return 0L;
+        }
+        return bits >= 64 ? -1L : -1L << (64 - bits);
+    }
+
+    static long lowMask(final int bits) {
+        if (bits <= 64) {
+            return 0L;
+        }
+        return bits >= 128 ? -1L : -1L << (128 - bits);
+    }
+
+    private static final class Node {
+
+        private final long high;
+        private final long low;
+        private final int bits;
+        private final long highMask;
+        private final long lowMask;
+        private boolean terminal;
+        private Node zero;
+        private Node one;
+
+        private Node(final long high, final long low, final int bits, final boolean terminal) {
+            this.bits = bits;
+            this.highMask = highMask(bits);
+            this.lowMask = lowMask(bits);
+            this.high = high & highMask;
+            this.low = low & lowMask;
+            this.terminal = terminal;
+        }
+
+        private boolean covers(final long high, final long low) {
+            return (high & highMask) == this.high && (low & lowMask) == this.low;
+        }
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright 2026 Bloomreach
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onehippo.forge.ipfilter.common;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.IntFunction;
+
+/**
+ * Fixed capacity table keyed by a client IP address and an int, split in lock striped segments of open addressing
+ * tables with primitive slots.
+ * <p>
+ * Every slot has a time stamp, 0 meaning the slot was never used, after which the slot may be reused. A key is looked
+ * for in a window of {@link #PROBES} slots. When the window is full, the slot with the earliest time stamp is replaced,
+ * so the table never grows beyond its capacity.
+ */
+abstract class IpSlotTable<S extends IpSlotTable.Segment> {
+
+    static final int PROBES = 8;
+    private static final int MAX_SEGMENTS = 64;
+    // IPv4 addresses are stored as IPv4 mapped IPv6 addresses, which ParsedIp never holds as IPv6
+    private static final long IPV4_MAPPED = 0xFFFF_0000_0000L;
+
+    private final Segment[] segments;
+    private final int segmentShift;
+
+    /**
+     * @param capacity       minimum number of slots
+     * @param segmentFactory creates a segment with the given, power of two, number of slots
+     */
+    IpSlotTable(final int capacity, final IntFunction<S> segmentFactory) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        int segmentCount = 1;
+        while (segmentCount < MAX_SEGMENTS && segmentCount * PROBES * 2 <= capacity) {
+            segmentCount <<= 1;
+        }
+        int slots = Integer.highestOneBit(Math.max(PROBES, (capacity + segmentCount - 1) / segmentCount));
+        if (slots * segmentCount < capacity) {
+            slots <<= 1;
+        }
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = segmentFactory.apply(slots);
+        }
+        this.segmentShift = 64 - Integer.numberOfTrailingZeros(segmentCount);
+    }
+
+    public void invalidateAll() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    /**
+     * @return maximum number of entries
+     */
+    public int getCapacity() {
+        return segments.length * segments[0].highs.length;
+    }
+
+    @SuppressWarnings("unchecked")
+    final S segmentFor(final long hash) {
+        return (S) (segments.length == 1 ? segments[0] : segments[(int) (hash >>> segmentShift)]);
+    }
+
+    static long high(final ParsedIp ip) {
+        return ip.isIpv4() ? 0L : ip.getHigh();
+    }
+
+    static long low(final ParsedIp ip) {
+        return ip.isIpv4() ? IPV4_MAPPED | (ip.getIpv4() & 0xFFFFFFFFL) : ip.getLow();
+    }
+
+    static long hash(final long high, final long low, final int key) {
+        long h = high * 0x9E3779B97F4A7C15L ^ low;
+        h = (h ^ key) * 0xBF58476D1CE4E5B9L;
+        return h ^ (h >>> 31);
+    }
+
+    abstract static class Segment {
+
+        final StampedLock lock = new StampedLock();
+        final long[] highs;
+        final long[] lows;
+        final int[] keys;
+        // 0 means the slot was never used
+        final long[] stamps;
+        final int mask;
+
+        Segment(final int slots) {
+            highs = new long[slots];
+            lows = new long[slots];
+            keys = new int[slots];
+            stamps = new long[slots];
+            mask = slots - 1;
+        }
+
+        /**
+         * @return what {@link #read(int, long)} returns for the slot of the key, or <code>absent</code> if there is
+         * none
+         */
+        final long get(final long high, final long low, final int key, final int hash, final long now,
+                       final long absent) {
+            final long stamp = lock.tryOptimisticRead();
+            long value = find(high, low, key, hash, now, absent);
+            if (!lock.validate(stamp)) {
+                final long readStamp = lock.readLock();
+                try {
+                    value = find(high, low, key, hash, now, absent);
+                } finally {
+                    lock.unlockRead(readStamp);
+                }
+            }
+            return value;
+        }
+
+        /**
+         * @return value of a slot holding the key, read under a (possibly optimistic) read lock
+         */
+        abstract long read(int slot, long now);
+
+        private long find(final long high, final long low, final int key, final int hash, final long now,
+                          final long absent) {
+            for (int i = 0; i < PROBES; i++) {
+                final int slot = (hash + i) & mask;
+                if (stamps[slot] == 0L) {
+                    // slots are only emptied all at once, so the key isn't further on
+                    return absent;
+                }
+                if (sameKey(slot, high, low, key)) {
+                    return read(slot, now);
+                }
+            }
+            return absent;
+        }
+
+        /**
+         * Finds the slot of the key, or else takes a free slot, the first one with a time stamp not after
+         * <code>now</code>, or the one with the earliest time stamp. A slot taken for the key has time stamp 0. Must
+         * be called holding the write lock.
+         *
+         * @return the slot, or its complement (a negative number) if the slot held another key with a time stamp after
+         * <code>now</code>
+         */
+        final int claim(final long high, final long low, final int key, final int hash, final long now) {
+            int target = -1;
+            int reusable = -1;
+            int earliest = -1;
+            for (int i = 0; i < PROBES; i++) {
+                final int slot = (hash + i) & mask;
+                if (stamps[slot] == 0L) {
+                    target = slot;
+                    break;
+                }
+                if (sameKey(slot, high, low, key)) {
+                    return slot;
+                }
+                if (reusable < 0 && stamps[slot] - now <= 0L) {
+                    // reuse the first expired slot, unless the key itself is further on
+                    reusable = slot;
+                } else if (earliest < 0 || stamps[slot] - stamps[earliest] < 0L) {
+                    earliest = slot;
+                }
+            }
+            final boolean evicted = target < 0 && reusable < 0;
+            if (target < 0) {
+                target = evicted ? earliest : reusable;
+            }
+            highs[target] = high;
+            lows[target] = low;
+            keys[target] = key;
+            stamps[target] = 0L;
+            return evicted ? ~target : target;
+        }
+
+        private boolean sameKey(final int slot, final long high, final long low, final int key) {
+            return highs[slot] == high && lows[slot] == low && keys[slot] == key;
+        }
+
+        private void clear() {
+            final long stamp = lock.writeLock();
+            try {
+                Arrays.fill(stamps, 0L);
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2026 Bloomreach
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onehippo.forge.ipfilter.common;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Token buckets of failed logins per client IP address, optionally combined with the user name.
+ * <p>
+ * Every failed login takes a token from the bucket of the client, and tokens are added back at a fixed rate up to the
+ * burst size. A client without tokens is throttled. A bucket is stored as the time it is full again, so a full bucket
+ * is the same as no bucket and its slot can be reused. Like the {@link IpDecisionCache}, buckets are kept in lock
+ * striped open addressing tables of primitive slots with a fixed capacity, so memory stays flat and checks don't
+ * allocate. When a probe window is full, the fullest bucket is replaced.
+ */
+public final class LoginThrottle extends IpSlotTable<LoginThrottle.Segment> {
+
+    private final long nanosPerToken;
+    // a bucket with less than one token is full again later than this
+    private final long throttleNanos;
+    private final LongSupplier clock;
+    private final LongAdder throttled = new LongAdder();
+
+    /**
+     * @param capacity          maximum number of buckets
+     * @param burst             number of failures allowed at once
+     * @param failuresPerMinute number of tokens added per minute
+     */
+    public LoginThrottle(final int capacity, final int burst, final int failuresPerMinute) {
+        this(capacity, burst, failuresPerMinute, System::nanoTime);
+    }
+
+    LoginThrottle(final int capacity, final int burst, final int failuresPerMinute, final LongSupplier clock) {
+        super(capacity, Segment::new);
+        if (burst < 1 || failuresPerMinute < 1) {
+            throw new IllegalArgumentException("Burst and rate must be positive");
+        }
+        this.nanosPerToken = TimeUnit.MINUTES.toNanos(1) / failuresPerMinute;
+        this.throttleNanos = (burst - 1) * nanosPerToken;
+        this.clock = clock;
+    }
+
+    /**
+     * @param ip      client IP address
+     * @param userKey seeded hash of the user name, or 0 to throttle per IP address only
+     * @return TRUE if the client has no failed logins left
+     */
+    public boolean isThrottled(final ParsedIp ip, final int userKey) {
+        if (!ip.isValid()) {
+            return false;
+        }
+        final long high = high(ip);
+        final long low = low(ip);
+        final long hash = hash(high, low, userKey);
+        final long fullAt = segmentFor(hash).get(high, low, userKey, (int) hash, 0L, 0L);
+        if (fullAt != 0L && fullAt - clock.getAsLong() > throttleNanos) {
+            throttled.increment();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Takes a token from the bucket of the client.
+     */
+    public void onFailure(final ParsedIp ip, final int userKey) {
+        if (!ip.isValid()) {
+            return;
+        }
+        final long high = high(ip);
+        final long low = low(ip);
+        final long hash = hash(high, low, userKey);
+        segmentFor(hash).take(high, low, userKey, (int) hash, clock.getAsLong(), nanosPerToken, throttleNanos);
+    }
+
+    /**
+     * @return number of throttled checks
+     */
+    public long getThrottledCount() {
+        return throttled.sum();
+    }
+
+    /**
+     * Buckets, with the time stamps of the slots being the times the buckets are full again.
+     */
+    static final class Segment extends IpSlotTable.Segment {
+
+        private Segment(final int slots) {
+            super(slots);
+        }
+
+        @Override
+        long read(final int slot, final long now) {
+            return stamps[slot];
+        }
+
+        private void take(final long high, final long low, final int userKey, final int hash, final long now,
+                          final long nanosPerToken, final long throttleNanos) {
+            final long stamp = lock.writeLock();
+            try {
+                // a full bucket is the same as no bucket, so its slot may be reused
+                final int slot = claim(high, low, userKey, hash, now);
+                final int target = slot < 0 ? ~slot : slot;
+                long fullAt = stamps[target];
+                if (fullAt == 0L || fullAt - now < 0L) {
+                    fullAt = now;
+                }
+                // no debt beyond an empty bucket, so a client recovers in a bounded time
+                fullAt = Math.min(fullAt + nanosPerToken, now + throttleNanos + nanosPerToken);
+                stamps[target] = fullAt == 0L ? 1L : fullAt;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2026 Bloomreach
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onehippo.forge.ipfilter.common;
+
+/**
+ * Mutable holder of an IP address in primitive form, filled by {@link IpAddressParser}. An IPv4 address is kept as a
+ * 32 bit integer, an IPv6 address as its high and low 64 bits. IPv4-mapped IPv6 addresses are held as IPv4.
+ * <p>
+ * Instances are not thread safe; use one per request.
+ */
+public final class ParsedIp {
+
+    private static final int NONE = 0;
+    private static final int IPV4 = 4;
+    private static final int IPV6 = 6;
+
+    private int family = NONE;
+    private int ipv4;
+    private long high;
+    private long low;
+
+    public boolean isValid() {
+        return family != NONE;
+    }
+
+    public boolean isIpv4() {
+        return family == IPV4;
+    }
+
+    public boolean isIpv6() {
+        return family == IPV6;
+    }
+
+    /**
+     * @return the IPv4 address as integer in network byte order, only meaningful if {@link #isIpv4()}
+     */
+    public int getIpv4() {
+        return ipv4;
+    }
+
+    /**
+     * @return the high 64 bits of the IPv6 address, only meaningful if {@link #isIpv6()}
+     */
+    public long getHigh() {
+        return high;
+    }
+
+    /**
+     * @return the low 64 bits of the IPv6 address, only meaningful if {@link #isIpv6()}
+     */
+    public long getLow() {
+        return low;
+    }
+
+    /**
+     * Checks if this address is in one of the IP ranges of the trie, FALSE if this address is not valid.
+     */
+    public boolean matches(final IpRangeTrie trie) {
+        switch (family) {
+            case IPV4:
+                return trie.matchesIpv4(ipv4);
+            case IPV6:
+                return trie.matchesIpv6(high, low);
+            default:
+                return false;
+        }
+    }
+
+    void clear() {
+        family = NONE;
+        ipv4 = 0;
+        high = 0L;
+        low = 0L;
+    }
+
+    void setIpv4(final int address) {
+        family = IPV4;
+        ipv4 = address;
+        high = 0L;
+        low = 0L;
+    }
+
+    void setIpv6(final long high, final long low) {
+        if (high == 0L && (low >>> 32) == 0xFFFFL) {
+            // IPv4-mapped
+            setIpv4((int) low);
+            return;
+        }
+        family = IPV6;
+        ipv4 = 0;
+        this.high = high;
+        this.low = low;
+    }
+
+    @Override
+    public String toString() {
+        switch (family) {
+            case IPV4:
+                return (ipv4 >>> 24) + "." + ((ipv4 >>> 16) & 0xFF) + '.' + ((ipv4 >>> 8) & 0xFF) + '.' + (ipv4 & 0xFF);
+            case IPV6:
+                final StringBuilder builder = new StringBuilder(39);
+                for (int i = 0; i < 8; i++) {
+                    final long word = i < 4 ? high >>> (48 - 16 * i) : low >>> (48 - 16 * (i - 4));
+                    if (i > 0) {
+                        builder.append(':');
+                    }
+                    builder.append(Long.toHexString(word & 0xFFFFL));
+                }
+                return builder.toString();
+            default:
+                return "invalid";
+        }
+    }
+}
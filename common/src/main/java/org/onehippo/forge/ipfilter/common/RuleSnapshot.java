@@ -0,0 +1,172 @@
+/*
+ * Copyright 2026 Bloomreach
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onehippo.forge.ipfilter.common;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * One generation of the loaded configuration: the configuration sets, the host index compiled from them and the
+ * headers holding the forwarded host.
+ * <p>
+ * Snapshots are immutable. The {@link IpFilterConfigLoader} publishes a new snapshot with a higher version on every
+ * load, so a request reading the snapshot once sees one consistent configuration. A snapshot derived with
+ * {@link #next(Map, Collection)} takes over the configuration sets that did not change, so caches of those stay valid.
+ */
+public final class RuleSnapshot {
+
+    public static final RuleSnapshot EMPTY = new RuleSnapshot(0L, ImmutableMap.of(),
+            ImmutableSet.of(IpFilterConstants.HEADER_X_FORWARDED_HOST));
+
+    private final long version;
+    private final long hostIndexGeneration;
+    private final Map<String, AuthObject> authObjects;
+    private final Set<AuthObject> authObjectSet;
+    private final HostIndex hostIndex;
+    private final Set<String> forwardedHostHeaderSet;
+    private final String[] forwardedHostHeaders;
+
+    /**
+     * @param version              version, higher than the version of the previous snapshot
+     * @param authObjects          configuration sets by configuration node name, in configuration order
+     * @param forwardedHostHeaders headers holding the forwarded host, in order of precedence
+     */
+    public RuleSnapshot(final long version, final Map<String, AuthObject> authObjects,
+                        final Collection<String> forwardedHostHeaders) {
+        this(version, version, authObjects, forwardedHostHeaders);
+    }
+
+    private RuleSnapshot(final long version, final long hostIndexGeneration, final Map<String, AuthObject> authObjects,
+                         final Collection<String> forwardedHostHeaders) {
+        this.version = version;
+        this.hostIndexGeneration = hostIndexGeneration;
+        this.authObjects = ImmutableMap.copyOf(authObjects);
+        // AuthObject has identity equality
+        this.authObjectSet = ImmutableSet.copyOf(this.authObjects.values());
+        this.hostIndex = HostIndex.compile(this.authObjects);
+        this.forwardedHostHeaderSet = ImmutableSet.copyOf(forwardedHostHeaders);
+        this.forwardedHostHeaders = this.forwardedHostHeaderSet.toArray(new String[0]);
+    }
+
+    /**
+     * Derive the snapshot of a reload. Parsed configuration sets with the same configuration as the current one by
+     * that name are replaced by the current one, so only changed configuration sets get a new
+     * {@link AuthObject#getId() id}. Changed configuration sets that still authenticate the same way take over the
+     * cached credentials of the current one, so editors behind basic authentication don't log in again after e.g. an
+     * allow-list change.
+     *
+     * @param parsed               parsed configuration sets by configuration node name, in configuration order
+     * @param forwardedHostHeaders headers holding the forwarded host, in order of precedence
+     * @return snapshot with the next version
+     */
+    public RuleSnapshot next(final Map<String, AuthObject> parsed, final Collection<String> forwardedHostHeaders) {
+        final Map<String, AuthObject> objects = new LinkedHashMap<>();
+        for (Map.Entry<String, AuthObject> entry : parsed.entrySet()) {
+            final AuthObject current = authObjects.get(entry.getKey());
+            final AuthObject authObject = entry.getValue();
+            if (authObject.sameConfiguration(current)) {
+                objects.put(entry.getKey(), current);
+                continue;
+            }
+            if (authObject.sameAuthentication(current)) {
+                authObject.takeCredentialCache(current);
+            }
+            objects.put(entry.getKey(), authObject);
+        }
+        final long nextVersion = version + 1;
+        return new RuleSnapshot(nextVersion, sameHosts(objects) ? hostIndexGeneration : nextVersion, objects,
+                forwardedHostHeaders);
+    }
+
+    /**
+     * @return true if the configuration sets have the same names and host names in the same order as this snapshot
+     */
+    private boolean sameHosts(final Map<String, AuthObject> objects) {
+        if (objects.size() != authObjects.size()) {
+            return false;
+        }
+        final Iterator<Map.Entry<String, AuthObject>> current = authObjects.entrySet().iterator();
+        for (Map.Entry<String, AuthObject> entry : objects.entrySet()) {
+            final Map.Entry<String, AuthObject> currentEntry = current.next();
+            if (!entry.getKey().equals(currentEntry.getKey())
+                    || !entry.getValue().getHosts().equals(currentEntry.getValue().getHosts())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return version of the snapshot the mapping from host names to configuration sets last changed in: hosts
+     * resolve to configuration sets by the same names for all snapshots with the same generation
+     */
+    public long getHostIndexGeneration() {
+        return hostIndexGeneration;
+    }
+
+    /**
+     * @return true if the configuration set is part of this snapshot, false if a reload replaced it
+     */
+    public boolean contains(final AuthObject authObject) {
+        return authObjectSet.contains(authObject);
+    }
+
+    /**
+     * @return immutable map of configuration sets by configuration node name, in configuration order
+     */
+    public Map<String, AuthObject> getAuthObjects() {
+        return authObjects;
+    }
+
+    public HostIndex getHostIndex() {
+        return hostIndex;
+    }
+
+    /**
+     * @return immutable set of headers holding the forwarded host, in order of precedence
+     */
+    public Set<String> getForwardedHostHeaderSet() {
+        return forwardedHostHeaderSet;
+    }
+
+    public int getForwardedHostHeaderCount() {
+        return forwardedHostHeaders.length;
+    }
+
+    public String getForwardedHostHeader(final int index) {
+        return forwardedHostHeaders[index];
+    }
+
+    @Override
+    public String toString() {
+        return "RuleSnapshot{" +
+                "version=" + version +
+                ", hostIndexGeneration=" + hostIndexGeneration +
+                ", authObjects=" + authObjects.keySet() +
+                ", forwardedHostHeaders=" + forwardedHostHeaderSet +
+                '}';
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2026 Bloomreach
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onehippo.forge.ipfilter.common;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent calls for the same key: the first caller executes the call, callers arriving while it is in
+ * flight wait for it and get the same result. Results are not kept once the call completes.
+ */
+public final class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> calls = new ConcurrentHashMap<>();
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder shared = new LongAdder();
+
+    /**
+     * @return result of the call, executed by this thread or by a concurrent caller with the same key
+     */
+    public V execute(final K key, final Supplier<V> call) {
+        final CompletableFuture<V> own = new CompletableFuture<>();
+        final CompletableFuture<V> inFlight = calls.putIfAbsent(key, own);
+        if (inFlight != null) {
+            shared.increment();
+            return await(inFlight);
+        }
+        executed.increment();
+        try {
+            final V value = call.get();
+            own.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            calls.remove(key, own);
+        }
+    }
+
+    /**
+     * Executes the call on the executor, unless a call for the same key is in flight already.
+     *
+     * @return future result of the call
+     * @throws RejectedExecutionException if the executor does not accept the call
+     */
+    public CompletableFuture<V> executeAsync(final K key, final Supplier<V> call, final Executor executor) {
+        final CompletableFuture<V> own = new CompletableFuture<>();
+        final CompletableFuture<V> inFlight = calls.putIfAbsent(key, own);
+        if (inFlight != null) {
+            shared.increment();
+            return inFlight;
+        }
+        executed.increment();
+        try {
+            executor.execute(() -> {
+                try {
+                    own.complete(call.get());
+                } catch (Throwable t) {
+                    own.completeExceptionally(t);
+                } finally {
+                    calls.remove(key, own);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // callers that joined meanwhile get the rejection too
+            calls.remove(key, own);
+            own.completeExceptionally(e);
+            throw e;
+        }
+        return own;
+    }
+
+    private static <V> V await(final CompletableFuture<V> inFlight) {
+        try {
+            return inFlight.join();
+        } catch (CompletionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * @return number of calls currently in flight
+     */
+    public int getInFlightCount() {
+        return calls.size();
+    }
+
+    /**
+     * @return number of calls executed
+     */
+    public long getExecutedCount() {
+        return executed.sum();
+    }
+
+    /**
+     * @return number of callers that got the result of a call executed for another caller
+     */
+    public long getSharedCount() {
+        return shared.sum();
+    }
+}
@@ -28,5 +28,13 @@ public enum Status {
     /**
      * Equivalent of a 403 http status
      */
-    FORBIDDEN
+    FORBIDDEN,
+    /**
+     * Equivalent of a 503 http status, the request may be retried later
+     */
+    SERVICE_UNAVAILABLE,
+    /**
+     * Equivalent of a 429 http status, too many failed logins
+     */
+    TOO_MANY_REQUESTS
 }
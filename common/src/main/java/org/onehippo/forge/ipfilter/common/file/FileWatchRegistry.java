@@ -0,0 +1,431 @@
+/*
+ * Copyright 2026 Bloomreach
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onehippo.forge.ipfilter.common.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.ImmutableSet;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * Watches files for all observers of the JVM with one {@link WatchService} and one daemon thread.
+ * <p>
+ * Observers register the directories and file names they are interested in and close their {@link Registration} when
+ * done. A directory is watched as long as a registration needs it, and the thread runs as long as any directory is
+ * watched. Changes of a file are debounced per registration: the observer is notified once the file has been quiet for
+ * the debounce window, so an editor saving in several writes causes a single {@link FileChangeObserver#update(File)}.
+ * A file that keeps changing is still notified after {@value #MAX_DEBOUNCE_WINDOWS} windows.
+ * <p>
+ * The default debounce window of the shared instance is read from system property {@value #DEBOUNCE_PROPERTY}.
+ */
+public final class FileWatchRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(FileWatchRegistry.class);
+
+    public static final String DEBOUNCE_PROPERTY = "hippo-ipfilter.file-watch-debounce-millis";
+    public static final long DEFAULT_DEBOUNCE_MILLIS = 500L;
+    private static final int MAX_DEBOUNCE_WINDOWS = 10;
+
+    private static final FileWatchRegistry INSTANCE =
+            new FileWatchRegistry("ipfilter-file-watch", Long.getLong(DEBOUNCE_PROPERTY, DEFAULT_DEBOUNCE_MILLIS));
+
+    private final String threadName;
+    private final Object lock = new Object();
+    private final Map<Path, WatchedDirectory> directories = new HashMap<>();
+    private final Map<WatchKey, WatchedDirectory> keys = new HashMap<>();
+    private volatile long debounceMillis;
+
+    private WatchService watcher;
+    private Thread thread;
+
+    FileWatchRegistry(final String threadName, final long debounceMillis) {
+        this.threadName = threadName;
+        this.debounceMillis = debounceMillis;
+    }
+
+    /**
+     * @return the registry shared by all observers of the JVM
+     */
+    public static FileWatchRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    public long getDebounceMillis() {
+        return debounceMillis;
+    }
+
+    /**
+     * @param debounceMillis debounce window of registrations made from now on, 0 to notify every change
+     */
+    public void setDebounceMillis(final long debounceMillis) {
+        this.debounceMillis = Math.max(0L, debounceMillis);
+    }
+
+    /**
+     * Registers an observer with the current debounce window.
+     *
+     * @see #register(FileChangeObserver, Set, Set, long)
+     */
+    public Registration register(final FileChangeObserver observer, final Set<String> directories,
+                                 final Set<String> filenames) {
+        return register(observer, directories, filenames, debounceMillis);
+    }
+
+    /**
+     * Starts notifying the observer of changes of the given files in the given directories. Directories that do not
+     * exist or cannot be watched are logged and skipped.
+     *
+     * @param debounceMillis quiet time after the last change of a file before the observer is notified, 0 to notify
+     *                       every change right away
+     * @return registration to close when the observer is no longer interested
+     */
+    public Registration register(final FileChangeObserver observer, final Set<String> directories,
+                                 final Set<String> filenames, final long debounceMillis) {
+        final Registration registration = new Registration(observer, filenames, debounceMillis);
+        synchronized (lock) {
+            for (String directory : directories) {
+                final File file = new File(directory);
+                if (!validDirectory(file)) {
+                    continue;
+                }
+                final Path path = file.toPath().toAbsolutePath().normalize();
+                try {
+                    WatchedDirectory watched = this.directories.get(path);
+                    if (watched == null) {
+                        final WatchKey key = path.register(startWatcher(), ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+                        log.info("Registering directory for change watching: {}", path);
+                        watched = new WatchedDirectory(path, key);
+                        this.directories.put(path, watched);
+                        keys.put(key, watched);
+                    }
+                    watched.registrations.add(registration);
+                    registration.directories.add(path);
+                } catch (IOException e) {
+                    log.error("Error registering directory {}", path, e);
+                }
+            }
+            if (registration.directories.isEmpty()) {
+                log.warn("No directories found for watching files {}", filenames);
+                stopWatcherIfIdle();
+            }
+        }
+        return registration;
+    }
+
+    /**
+     * Closes all registrations and stops the watcher thread. Later registrations start it again.
+     */
+    public void shutdown() {
+        synchronized (lock) {
+            for (WatchedDirectory watched : directories.values()) {
+                for (Registration registration : watched.registrations) {
+                    registration.closed = true;
+                }
+                watched.key.cancel();
+            }
+            directories.clear();
+            keys.clear();
+            stopWatcherIfIdle();
+        }
+    }
+
+    /**
+     * @return true if the watcher thread runs
+     */
+    public boolean isRunning() {
+        synchronized (lock) {
+            return thread != null;
+        }
+    }
+
+    public int getWatchedDirectoryCount() {
+        synchronized (lock) {
+            return directories.size();
+        }
+    }
+
+    /**
+     * @return number of open registrations watching at least one directory
+     */
+    public int getRegistrationCount() {
+        synchronized (lock) {
+            final Set<Registration> registrations = new LinkedHashSet<>();
+            for (WatchedDirectory watched : directories.values()) {
+                registrations.addAll(watched.registrations);
+            }
+            return registrations.size();
+        }
+    }
+
+    private void unregister(final Registration registration) {
+        synchronized (lock) {
+            if (registration.closed) {
+                return;
+            }
+            registration.closed = true;
+            for (Path path : registration.directories) {
+                final WatchedDirectory watched = directories.get(path);
+                if (watched != null && watched.registrations.remove(registration) && watched.registrations.isEmpty()) {
+                    log.info("Unregistering directory from change watching: {}", path);
+                    watched.key.cancel();
+                    directories.remove(path);
+                    keys.remove(watched.key);
+                }
+            }
+            stopWatcherIfIdle();
+        }
+    }
+
+    private WatchService startWatcher() throws IOException {
+        if (watcher == null) {
+            final WatchService service = FileSystems.getDefault().newWatchService();
+            final Thread worker = new Thread(() -> watch(service), threadName);
+            worker.setDaemon(true);
+            worker.start();
+            watcher = service;
+            thread = worker;
+            log.info("Started file watcher");
+        }
+        return watcher;
+    }
+
+    private void stopWatcherIfIdle() {
+        if (watcher == null || !directories.isEmpty()) {
+            return;
+        }
+        try {
+            // wakes up the thread with a ClosedWatchServiceException
+            watcher.close();
+        } catch (IOException e) {
+            log.error("Error closing watcher service", e);
+        }
+        watcher = null;
+        thread = null;
+        log.info("Stopped file watcher");
+    }
+
+    private void watch(final WatchService service) {
+        // only touched by this thread
+        final Map<Registration, Map<File, PendingChange>> pending = new LinkedHashMap<>();
+        while (true) {
+            final long next = fireDue(pending, System.nanoTime());
+            final WatchKey key;
+            try {
+                key = next == Long.MAX_VALUE ? service.take()
+                        : service.poll(Math.max(0L, next - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            if (key != null) {
+                collect(key, pending);
+            }
+        }
+    }
+
+    private void collect(final WatchKey key, final Map<Registration, Map<File, PendingChange>> pending) {
+        final List<Path> changed = new ArrayList<>();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() != OVERFLOW) {
+                changed.add((Path) event.context());
+            }
+        }
+        final boolean valid = key.reset();
+
+        final Path dir;
+        final Collection<Registration> registrations;
+        synchronized (lock) {
+            final WatchedDirectory watched = keys.get(key);
+            if (watched == null) {
+                log.debug("WatchKey {} no longer registered", key);
+                return;
+            }
+            dir = watched.path;
+            registrations = new ArrayList<>(watched.registrations);
+            if (!valid) {
+                log.warn("Directory {} can no longer be watched", dir);
+                directories.remove(dir);
+                keys.remove(key);
+                stopWatcherIfIdle();
+            }
+        }
+
+        final long now = System.nanoTime();
+        for (Path name : changed) {
+            final File file = dir.resolve(name).toFile();
+            if (file.isDirectory()) {
+                continue;
+            }
+            log.debug("Detected file change in {}", file.getAbsolutePath());
+            for (Registration registration : registrations) {
+                if (registration.filenames.contains(file.getName())) {
+                    schedule(pending, registration, file, now);
+                }
+            }
+        }
+    }
+
+    private static void schedule(final Map<Registration, Map<File, PendingChange>> pending,
+                                 final Registration registration, final File file, final long now) {
+        if (registration.debounceNanos <= 0L) {
+            registration.fire(file);
+            return;
+        }
+        final Map<File, PendingChange> changes = pending.computeIfAbsent(registration, r -> new LinkedHashMap<>());
+        final PendingChange change = changes.get(file);
+        if (change == null) {
+            changes.put(file, new PendingChange(now, registration.debounceNanos));
+        } else {
+            change.postpone(now, registration.debounceNanos);
+        }
+    }
+
+    /**
+     * Notifies the changes whose debounce window passed.
+     *
+     * @return {@link System#nanoTime()} the next pending change is due, {@link Long#MAX_VALUE} if there is none
+     */
+    private static long fireDue(final Map<Registration, Map<File, PendingChange>> pending, final long now) {
+        long next = Long.MAX_VALUE;
+        final Iterator<Map.Entry<Registration, Map<File, PendingChange>>> registrations = pending.entrySet().iterator();
+        while (registrations.hasNext()) {
+            final Map.Entry<Registration, Map<File, PendingChange>> entry = registrations.next();
+            final Iterator<Map.Entry<File, PendingChange>> changes = entry.getValue().entrySet().iterator();
+            while (changes.hasNext()) {
+                final Map.Entry<File, PendingChange> change = changes.next();
+                final long due = change.getValue().due;
+                if (due - now <= 0L) {
+                    changes.remove();
+                    entry.getKey().fire(change.getKey());
+                } else if (next == Long.MAX_VALUE || due - next < 0L) {
+                    next = due;
+                }
+            }
+            if (entry.getValue().isEmpty()) {
+                registrations.remove();
+            }
+        }
+        return next;
+    }
+
+    private static boolean validDirectory(final File file) {
+        if (!file.exists()) {
+            log.warn("File does not exists: {}", file);
+            return false;
+        }
+        if (!file.isDirectory()) {
+            log.warn("File is not a directory: {}", file);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Interest of one observer in files of some directories.
+     */
+    public final class Registration implements AutoCloseable {
+
+        private final FileChangeObserver observer;
+        private final Set<String> filenames;
+        private final long debounceNanos;
+        private final Set<Path> directories = new LinkedHashSet<>();
+        private volatile boolean closed;
+
+        private Registration(final FileChangeObserver observer, final Set<String> filenames,
+                             final long debounceMillis) {
+            this.observer = observer;
+            this.filenames = ImmutableSet.copyOf(filenames);
+            this.debounceNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0L, debounceMillis));
+        }
+
+        /**
+         * @return true if at least one directory is watched for this registration
+         */
+        public boolean isValid() {
+            return !closed && !directories.isEmpty();
+        }
+
+        /**
+         * Stops notifying the observer, also of changes still in their debounce window. Closing twice is harmless.
+         */
+        @Override
+        public void close() {
+            unregister(this);
+        }
+
+        private void fire(final File file) {
+            if (closed) {
+                return;
+            }
+            try {
+                observer.update(file);
+            } catch (RuntimeException e) {
+                log.error("Error notifying change of {}", file, e);
+            }
+        }
+    }
+
+    private static final class WatchedDirectory {
+
+        private final Path path;
+        private final WatchKey key;
+        private final List<Registration> registrations = new ArrayList<>();
+
+        private WatchedDirectory(final Path path, final WatchKey key) {
+            this.path = path;
+            this.key = key;
+        }
+    }
+
+    private static final class PendingChange {
+
+        private final long deadline;
+        private long due;
+
+        private PendingChange(final long now, final long debounceNanos) {
+            this.due = now + debounceNanos;
+            this.deadline = now + debounceNanos * MAX_DEBOUNCE_WINDOWS;
+        }
+
+        private void postpone(final long now, final long debounceNanos) {
+            final long postponed = now + debounceNanos;
+            due = postponed - deadline > 0L ? deadline : postponed;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2026 Bloomreach
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onehippo.forge.ipfilter.common;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AuthTokenSignerTest {
+
+    private static final String SECRET = "0123456789abcdef0123456789abcdef";
+
+    private final AtomicLong now = new AtomicLong(1_700_000_000L);
+
+    @Test
+    public void testIssueAndVerify() {
+        final AuthTokenSigner signer = new AuthTokenSigner(SECRET, 10, TimeUnit.MINUTES, now::get);
+        final String token = signer.issue("IpFilter|www.example.com");
+        assertTrue(signer.verify(token, "IpFilter|www.example.com"));
+        assertFalse(signer.verify(token, "IpFilter|cms.example.com"));
+        assertFalse(signer.verify(token, "CmsIpFilter|www.example.com"));
+
+        // other nodes with the same secret accept it
+        assertTrue(new AuthTokenSigner(SECRET, 10, TimeUnit.MINUTES, now::get).verify(token, "IpFilter|www.example.com"));
+        assertFalse(new AuthTokenSigner(SECRET + "x", 10, TimeUnit.MINUTES, now::get).verify(token, "IpFilter|www.example.com"));
+
+        now.addAndGet(600);
+        assertFalse(signer.verify(token, "IpFilter|www.example.com"));
+    }
+
+    @Test
+    public void testTampered() {
+        final AuthTokenSigner signer = new AuthTokenSigner(SECRET, 10, TimeUnit.MINUTES, now::get);
+        final String token = signer.issue("scope");
+        final String signature = token.substring(token.indexOf('.'));
+        // a later expiry with the old signature
+        assertFalse(signer.verify((now.get() + 300) + signature, "scope"));
+        // far future expiry
+        assertFalse(signer.verify(Long.MAX_VALUE + signature, "scope"));
+        assertFalse(signer.verify(null, "scope"));
+        assertFalse(signer.verify("", "scope"));
+        assertFalse(signer.verify("abc.def", "scope"));
+        assertFalse(signer.verify(token.substring(0, token.length() - 2), "scope"));
+        assertFalse(signer.verify(token + "%", "scope"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testShortSecret() {
+        new AuthTokenSigner("secret", 10, TimeUnit.MINUTES);
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright 2026 Bloomreach
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onehippo.forge.ipfilter.common;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.getCurrentArguments;
+import static org.easymock.EasyMock.replay;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BaseIpFilterTest {
+
+    private static final String HOST = "www.example.com";
+    private static final String SECRET = "0123456789abcdef";
+    private static final String PASSWORD = "secret";
+
+    private final TestFilter filter = new TestFilter();
+
+    @After
+    public void tearDown() {
+        filter.destroy();
+    }
+
+    @Test
+    public void testAuthToken() throws Exception {
+        filter.init(ServletMocks.filterConfig(ImmutableMap.of(IpFilterConstants.AUTH_TOKEN_SECRET_PARAM, SECRET)));
+        filter.snapshot = snapshot(1L, authObject("site", false));
+
+        final List<Cookie> issued = new ArrayList<>();
+        assertTrue(filter(request("admin", null), issued));
+        assertEquals(1, filter.authentications.get());
+        assertEquals(1, issued.size());
+        final Cookie cookie = issued.get(0);
+        assertEquals(IpFilterConstants.DEFAULT_AUTH_TOKEN_COOKIE, cookie.getName());
+        assertTrue(cookie.getSecure());
+        assertTrue(cookie.isHttpOnly());
+        assertEquals(IpFilterConstants.AUTH_TOKEN_SAME_SITE, cookie.getAttribute("SameSite"));
+
+        // accepted without authenticating again
+        issued.clear();
+        assertTrue(filter(request("admin", cookie), issued));
+        assertEquals(1, filter.authentications.get());
+        assertTrue(issued.isEmpty());
+
+        // not for another user
+        assertFalse(filter(request("guest", cookie), issued));
+        assertEquals(2, filter.authentications.get());
+
+        // not for the same user with another password
+        assertFalse(filter(request("admin", "guess", cookie), issued));
+        assertEquals(3, filter.authentications.get());
+
+        // not without credentials
+        assertFalse(filter(request(null, cookie), issued));
+        assertEquals(4, filter.authentications.get());
+
+        // not after the configuration set authenticates differently
+        filter.snapshot = snapshot(2L, authObject("site", true));
+        assertTrue(filter(request("admin", cookie), issued));
+        assertEquals(5, filter.authentications.get());
+
+        // not for another configuration set
+        filter.snapshot = snapshot(3L, authObject("other", true));
+        assertTrue(filter(request("admin", cookie), issued));
+        assertEquals(6, filter.authentications.get());
+    }
+
+    @Test
+    public void testAuthTokenNotSecure() throws Exception {
+        filter.init(ServletMocks.filterConfig(ImmutableMap.of(IpFilterConstants.AUTH_TOKEN_SECRET_PARAM, SECRET,
+                IpFilterConstants.AUTH_TOKEN_SECURE_PARAM, "false")));
+        filter.snapshot = snapshot(1L, authObject("site", false));
+
+        final List<Cookie> issued = new ArrayList<>();
+        assertTrue(filter(request("admin", null), issued));
+        assertEquals(1, issued.size());
+        assertFalse(issued.get(0).getSecure());
+    }
+
+    @Test
+    public void testWithoutSecret() throws Exception {
+        filter.init(ServletMocks.filterConfig(Collections.emptyMap()));
+        filter.snapshot = snapshot(1L, authObject("site", false));
+
+        final List<Cookie> issued = new ArrayList<>();
+        assertTrue(filter(request("admin", null), issued));
+        assertTrue(filter(request("admin", null), issued));
+        assertEquals(2, filter.authentications.get());
+        assertTrue(issued.isEmpty());
+    }
+
+    /**
+     * @return TRUE if the request was passed on
+     */
+    private boolean filter(final HttpServletRequest request, final List<Cookie> issued) throws Exception {
+        final HttpServletResponse response = createNiceMock(HttpServletResponse.class);
+        response.addCookie(anyObject(Cookie.class));
+        expectLastCall().andAnswer(() -> {
+            issued.add((Cookie) getCurrentArguments()[0]);
+            return null;
+        }).anyTimes();
+        final AtomicInteger passed = new AtomicInteger();
+        final FilterChain chain = createNiceMock(FilterChain.class);
+        chain.doFilter(request, response);
+        expectLastCall().andAnswer(() -> {
+            passed.incrementAndGet();
+            return null;
+        }).anyTimes();
+        replay(response, chain);
+        filter.doFilter(request, response, chain);
+        return passed.get() == 1;
+    }
+
+    private static HttpServletRequest request(final String user, final Cookie cookie) {
+        return request(user, PASSWORD, cookie);
+    }
+
+    private static HttpServletRequest request(final String user, final String password, final Cookie cookie) {
+        final HttpServletRequest request = createNiceMock(HttpServletRequest.class);
+        expect(request.getHeader(IpFilterConstants.HEADER_AUTHORIZATION))
+                .andReturn(user == null ? null : authorization(user, password)).anyTimes();
+        expect(request.getCookies()).andReturn(cookie == null ? null : new Cookie[]{cookie}).anyTimes();
+        expect(request.getRemoteHost()).andReturn(HOST).anyTimes();
+        expect(request.getRemoteAddr()).andReturn("10.0.0.1").anyTimes();
+        expect(request.getRequestURI()).andReturn("/site/page").anyTimes();
+        expect(request.getContextPath()).andReturn("").anyTimes();
+        replay(request);
+        return request;
+    }
+
+    private static String authorization(final String user, final String password) {
+        return "Basic " + Base64.getEncoder().encodeToString((user + ':' + password).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static AuthObject authObject(final String name, final boolean mustMatchAll) {
+        return AuthObject.builder().hosts(Collections.singleton(HOST)).allowCmsUsers(true).cacheEnabled(false)
+                .mustMatchAll(mustMatchAll).name(name).build();
+    }
+
+    private static RuleSnapshot snapshot(final long version, final AuthObject authObject) {
+        return new RuleSnapshot(version, Collections.singletonMap(authObject.getName(), authObject),
+                Collections.emptySet());
+    }
+
+    /**
+     * Filter serving the snapshot it is given, accepting the credentials of user admin with the right password only.
+     */
+    private static final class TestFilter extends BaseIpFilter {
+
+        private final AtomicInteger authentications = new AtomicInteger();
+        private volatile RuleSnapshot snapshot;
+
+        @Override
+        protected Status authenticate(final AuthObject authObject, final HttpServletRequest request) {
+            authentications.incrementAndGet();
+            return authorization("admin", PASSWORD).equals(request.getHeader(IpFilterConstants.HEADER_AUTHORIZATION))
+                    ? Status.OK : Status.UNAUTHORIZED;
+        }
+
+        @Override
+        protected void initializeConfigManager() {
+            configLoader = new IpFilterConfigLoader() {
+                @Override
+                public boolean needReloading() {
+                    return false;
+                }
+
+                @Override
+                public RuleSnapshot getSnapshot() {
+                    return snapshot;
+                }
+            };
+            initialized = true;
+        }
+
+        @Override
+        protected String getDisabledPropertyName() {
+            return "test.ipfilter.disabled";
+        }
+
+        @Override
+        public void destroy() {
+            super.destroy();
+            if (configLoader != null) {
+                configLoader.shutdown();
+            }
+        }
+    }
+}
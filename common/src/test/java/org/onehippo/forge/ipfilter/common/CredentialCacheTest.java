@@ -0,0 +1,102 @@
+/*
+ * Copyright 2026 Bloomreach
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onehippo.forge.ipfilter.common;
+
+import java.util.Collections;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.hash.HashCode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CredentialCacheTest {
+
+    @Test
+    public void testKeys() {
+        final HashCode admin = CredentialCache.key("Basic YWRtaW46YWRtaW4=");
+        assertEquals(admin, CredentialCache.key("Basic YWRtaW46YWRtaW4="));
+        // "admin:admin1" and "admin1:admin" concatenate to the same string
+        assertFalse(CredentialCache.key("Basic YWRtaW46YWRtaW4x").equals(CredentialCache.key("Basic YWRtaW4xOmFkbWlu")));
+        assertEquals(32, admin.bits() / 8);
+    }
+
+    @Test
+    public void testContainsAndInvalidate() {
+        final CredentialCache cache = new CredentialCache(10, 5);
+        final HashCode key = CredentialCache.key("Basic YWRtaW46YWRtaW4=");
+        assertFalse(cache.contains(key));
+        cache.put(key);
+        assertTrue(cache.contains(key));
+        assertEquals(1, cache.getStats().hitCount());
+        assertEquals(1, cache.getStats().missCount());
+        cache.invalidateAll();
+        assertFalse(cache.contains(key));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testBounded() {
+        final CredentialCache cache = new CredentialCache(2, 5);
+        for (int i = 0; i < 10; i++) {
+            cache.put(CredentialCache.key("Basic " + i));
+        }
+        assertTrue(cache.size() <= 2);
+    }
+
+    @Test
+    public void testPerConfigurationSet() {
+        final AuthObject first = AuthObject.builder().hosts(Collections.singleton("a")).allowCmsUsers(true)
+                .userCache(5, 10).build();
+        final AuthObject second = AuthObject.builder().hosts(Collections.singleton("b")).allowCmsUsers(true).build();
+        assertEquals(5, first.getCredentialCache().getMaximumSize());
+        assertEquals(10, first.getCredentialCache().getExpireMinutes());
+        assertEquals(IpFilterConstants.DEFAULT_USER_CACHE_SIZE, second.getCredentialCache().getMaximumSize());
+
+        final HashCode key = CredentialCache.key("Basic YWRtaW46YWRtaW4=");
+        first.getCredentialCache().put(key);
+        assertFalse(second.getCredentialCache().contains(key));
+    }
+
+    @Test
+    public void testKeptAcrossReload() {
+        final HashCode key = CredentialCache.key("Basic YWRtaW46YWRtaW4=");
+        final RuleSnapshot first = new RuleSnapshot(1L, ImmutableMap.of("site", site("127.0.0.1", true, false)),
+                ImmutableSet.of(IpFilterConstants.HEADER_X_FORWARDED_HOST));
+        first.getAuthObjects().get("site").getCredentialCache().put(key);
+
+        // another allowed range authenticates the same way
+        final RuleSnapshot second = first.next(ImmutableMap.of("site", site("10.0.0.1", true, false)),
+                ImmutableSet.of(IpFilterConstants.HEADER_X_FORWARDED_HOST));
+        assertFalse(first.getAuthObjects().get("site") == second.getAuthObjects().get("site"));
+        assertTrue(second.getAuthObjects().get("site").getCredentialCache().contains(key));
+
+        // match-all changes who gets in
+        final RuleSnapshot third = second.next(ImmutableMap.of("site", site("10.0.0.1", true, true)),
+                ImmutableSet.of(IpFilterConstants.HEADER_X_FORWARDED_HOST));
+        assertFalse(third.getAuthObjects().get("site").getCredentialCache().contains(key));
+    }
+
+    private static AuthObject site(final String range, final boolean allowCmsUsers, final boolean matchAll) {
+        return AuthObject.builder().hosts(Collections.singleton("www.example.com")).ranges(Collections.singleton(range))
+                .allowCmsUsers(allowCmsUsers).mustMatchAll(matchAll).userCache(10, 10).name("site").build();
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2026 Bloomreach
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onehippo.forge.ipfilter.common;
+
+import java.util.Collections;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class HostCacheTest {
+
+    @Test
+    public void testPositiveAndNegativeEntries() {
+        final AuthObject www = AuthObject.builder().hosts(Collections.singleton("www.example.com")).allowCmsUsers(true)
+                .build();
+        final RuleSnapshot snapshot = new RuleSnapshot(1L, ImmutableMap.of("www", www),
+                ImmutableSet.of(IpFilterConstants.HEADER_X_FORWARDED_HOST));
+        final HostCache cache = new HostCache(1).rebuild(snapshot.getHostIndex().getHostCount(), snapshot.getVersion());
+        assertEquals(1 + IpFilterConstants.CACHE_SITE, cache.getCapacity());
+        assertEquals(1L, cache.getVersion());
+
+        for (int i = 0; i < 3; i++) {
+            assertSame(www, cache.get("www.example.com", snapshot));
+            assertSame(AuthObject.INVALID, cache.get("scanner.invalid", snapshot));
+        }
+        assertEquals(2, cache.getStats().hitCount());
+        assertEquals(4, cache.getStats().missCount());
+        assertEquals(2, cache.getUnknownHostStats().missCount());
+        assertEquals(2, cache.getUnknownHostStats().hitCount());
+
+        final HostCache rebuilt = cache.rebuild(10, 2L);
+        assertEquals(10 + IpFilterConstants.CACHE_SITE, rebuilt.getCapacity());
+        assertSame(AuthObject.INVALID, rebuilt.get("www.example.com", RuleSnapshot.EMPTY));
+        assertEquals(2, rebuilt.getStats().hitCount());
+        assertEquals(5, rebuilt.getStats().missCount());
+    }
+
+    @Test
+    public void testReloadKeepsUnchangedConfigurationSets() {
+        final RuleSnapshot first = new RuleSnapshot(1L, ImmutableMap.of("www", site("www", "127.0.0.1"),
+                "api", site("api", "127.0.0.1")), ImmutableSet.of(IpFilterConstants.HEADER_X_FORWARDED_HOST));
+        final HostCache cache = new HostCache(0).rebuild(2, first.getHostIndexGeneration());
+        final AuthObject www = cache.get("www.example.com", first);
+        final AuthObject api = cache.get("api.example.com", first);
+
+        // only the allowed ranges of api changed
+        final RuleSnapshot second = first.next(ImmutableMap.of("www", site("www", "127.0.0.1"),
+                "api", site("api", "10.0.0.1")), ImmutableSet.of(IpFilterConstants.HEADER_X_FORWARDED_HOST));
+        assertEquals(2L, second.getVersion());
+        assertEquals(first.getHostIndexGeneration(), second.getHostIndexGeneration());
+        assertSame(www, second.getAuthObjects().get("www"));
+        assertFalse(api.getId() == second.getAuthObjects().get("api").getId());
+        assertTrue(second.contains(www));
+        assertFalse(second.contains(api));
+
+        assertSame(www, cache.get("www.example.com", second));
+        assertSame(second.getAuthObjects().get("api"), cache.get("api.example.com", second));
+
+        // different host names resolve differently
+        final RuleSnapshot third = second.next(ImmutableMap.of("www", site("www", "127.0.0.1")),
+                ImmutableSet.of(IpFilterConstants.HEADER_X_FORWARDED_HOST));
+        assertEquals(3L, third.getHostIndexGeneration());
+        assertSame(www, third.getAuthObjects().get("www"));
+    }
+
+    private static AuthObject site(final String name, final String range) {
+        return AuthObject.builder().hosts(Collections.singleton(name + ".example.com"))
+                .ranges(Collections.singleton(range)).allowCmsUsers(true).userCache(10, 10).name(name).build();
+    }
+
+    @Test
+    public void testSnapshot() {
+        final RuleSnapshot snapshot = new RuleSnapshot(3L, ImmutableMap.of(),
+                ImmutableSet.of("X-Host", IpFilterConstants.HEADER_X_FORWARDED_HOST));
+        assertEquals(2, snapshot.getForwardedHostHeaderCount());
+        assertEquals("X-Host", snapshot.getForwardedHostHeader(0));
+        assertEquals(0, snapshot.getHostIndex().getHostCount());
+        assertTrue(RuleSnapshot.EMPTY.getForwardedHostHeaderSet().contains(IpFilterConstants.HEADER_X_FORWARDED_HOST));
+    }
+}
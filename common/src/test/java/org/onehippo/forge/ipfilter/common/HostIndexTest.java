@@ -0,0 +1,110 @@
+/*
+ * Copyright 2026 Bloomreach
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onehippo.forge.ipfilter.common;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class HostIndexTest {
+
+    private static AuthObject authObject(final String... hosts) {
+        final Set<String> hostSet = new LinkedHashSet<>();
+        Collections.addAll(hostSet, hosts);
+        return AuthObject.builder().hosts(hostSet).allowCmsUsers(true).build();
+    }
+
+    @Test
+    public void testLiteral() {
+        assertEquals("localhost", HostIndex.toLiteral(Pattern.compile("localhost")));
+        assertEquals("www.example.com", HostIndex.toLiteral(Pattern.compile("www.example.com")));
+        assertEquals("127.0.0.1", HostIndex.toLiteral(Pattern.compile("127\\.0\\.0\\.1")));
+        assertEquals("0:0:0:0:0:0:0:1", HostIndex.toLiteral(Pattern.compile("0:0:0:0:0:0:0:1")));
+        assertNull(HostIndex.toLiteral(Pattern.compile(".*\\.example\\.com")));
+        assertNull(HostIndex.toLiteral(Pattern.compile("(www|m)\\.example\\.com")));
+        assertNull(HostIndex.toLiteral(Pattern.compile("\\w+")));
+        assertNull(HostIndex.toLiteral(Pattern.compile("localhost", Pattern.CASE_INSENSITIVE)));
+    }
+
+    @Test
+    public void testResolve() {
+        final AuthObject local = authObject("localhost", "127\\.0\\.0\\.1");
+        final AuthObject example = authObject("www.example.com", ".*\\.example\\.org");
+        final AuthObject preview = authObject("preview-[0-9]+\\.example\\.com");
+        final Map<String, AuthObject> objects = new LinkedHashMap<>();
+        objects.put("local", local);
+        objects.put("example", example);
+        objects.put("preview", preview);
+        final HostIndex index = HostIndex.compile(objects);
+
+        assertEquals(5, index.getHostCount());
+        assertSame(local, index.resolve("localhost"));
+        assertSame(local, index.resolve("127.0.0.1"));
+        assertSame(example, index.resolve("www.example.com"));
+        assertSame(example, index.resolve("cms.example.org"));
+        assertSame(preview, index.resolve("preview-12.example.com"));
+        assertNull(index.resolve("preview-x.example.com"));
+        assertNull(index.resolve("example.com"));
+        assertNull(index.resolve(null));
+    }
+
+    @Test
+    public void testFirstMatchWins() {
+        final AuthObject wildcard = authObject(".*\\.example\\.com");
+        final AuthObject www = authObject("www.example.com");
+        final AuthObject other = authObject("(cms|www)\\.example\\.com", "localhost");
+
+        final Map<String, AuthObject> wildcardFirst = new LinkedHashMap<>();
+        wildcardFirst.put("wildcard", wildcard);
+        wildcardFirst.put("www", www);
+        wildcardFirst.put("other", other);
+        HostIndex index = HostIndex.compile(wildcardFirst);
+        assertSame(wildcard, index.resolve("www.example.com"));
+        assertSame(wildcard, index.resolve("cms.example.com"));
+        assertSame(other, index.resolve("localhost"));
+
+        final Map<String, AuthObject> literalFirst = new LinkedHashMap<>();
+        literalFirst.put("www", www);
+        literalFirst.put("other", other);
+        literalFirst.put("wildcard", wildcard);
+        index = HostIndex.compile(literalFirst);
+        assertSame(www, index.resolve("www.example.com"));
+        assertSame(other, index.resolve("cms.example.com"));
+        assertSame(wildcard, index.resolve("m.example.com"));
+    }
+
+    @Test
+    public void testUncombinableRegexes() {
+        final AuthObject backReference = authObject("(a+)-\\1\\.example\\.com");
+        final AuthObject wildcard = authObject(".*\\.example\\.com");
+        final Map<String, AuthObject> objects = new LinkedHashMap<>();
+        objects.put("backReference", backReference);
+        objects.put("wildcard", wildcard);
+        final HostIndex index = HostIndex.compile(objects);
+        assertSame(backReference, index.resolve("aa-aa.example.com"));
+        assertSame(wildcard, index.resolve("aa-a.example.com"));
+    }
+}
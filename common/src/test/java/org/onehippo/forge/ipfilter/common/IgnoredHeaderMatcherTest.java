@@ -0,0 +1,81 @@
+/*
+ * Copyright 2026 Bloomreach
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onehippo.forge.ipfilter.common;
+
+import java.util.Collections;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class IgnoredHeaderMatcherTest {
+
+    @Test
+    public void testMatches() {
+        final IgnoredHeaderMatcher matcher = IgnoredHeaderMatcher.compile(
+                ImmutableMap.of("X-Fastly", ImmutableSet.of("secret"), "X-Monitor", ImmutableSet.of("Pingdom")),
+                ImmutableMap.of("x-fastly", ImmutableSet.of("Bypass")), null);
+        // names differing in case only are one header
+        assertEquals(2, matcher.size());
+        assertEquals("X-Fastly", matcher.getName(0));
+        assertEquals("X-Monitor", matcher.getName(1));
+
+        assertTrue(matcher.matches(0, "secret"));
+        assertFalse(matcher.matches(0, "SECRET"));
+        assertTrue(matcher.matches(0, "bypass"));
+        assertTrue(matcher.matches(0, "BYPASS"));
+        // without tokens the whole value must match
+        assertFalse(matcher.matches(0, "other, secret"));
+        assertFalse(matcher.matches(0, "other,BYPASS ,x"));
+        assertFalse(matcher.matches(0, ""));
+        assertFalse(matcher.matches(0, null));
+
+        assertTrue(matcher.matches(1, "Pingdom"));
+        assertFalse(matcher.matches(1, "pingdom"));
+    }
+
+    @Test
+    public void testMatchesTokens() {
+        final IgnoredHeaderMatcher matcher = IgnoredHeaderMatcher.compile(
+                ImmutableMap.of("X-Fastly", ImmutableSet.of("secret", "exact")),
+                ImmutableMap.of("x-fastly", ImmutableSet.of("Bypass")),
+                ImmutableMap.of("X-FASTLY", ImmutableSet.of("secret", "Bypass")));
+        assertEquals(1, matcher.size());
+
+        assertTrue(matcher.matches(0, "secret"));
+        assertTrue(matcher.matches(0, "other, secret"));
+        assertTrue(matcher.matches(0, "other,BYPASS ,x"));
+        assertFalse(matcher.matches(0, "other, SECRET"));
+        assertFalse(matcher.matches(0, "other, secrets"));
+        assertFalse(matcher.matches(0, ", ,"));
+        // values configured without tokens still need the whole value
+        assertTrue(matcher.matches(0, "exact"));
+        assertFalse(matcher.matches(0, "other, exact"));
+    }
+
+    @Test
+    public void testEmpty() {
+        assertTrue(IgnoredHeaderMatcher.compile(null, null, null).isEmpty());
+        assertTrue(IgnoredHeaderMatcher.compile(ImmutableMap.of("X-Fastly", Collections.emptySet()), null, null).isEmpty());
+        assertTrue(AuthObject.INVALID.getIgnoredHeaderMatcher().isEmpty());
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2026 Bloomreach
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onehippo.forge.ipfilter.common;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class IgnoredPathMatcherTest {
+
+    private static final List<String> PATTERNS = Arrays.asList("/autoreload", "/ping/.*", "^/_rp/.*",
+            "^/binaries/.*", ".*\\.css", ".*\\.js$", ".*\\.css", "^/exact$", "/robots.txt", "/a\\+b", ".*",
+            "/news/[0-9]+", "/(en|nl)/private/.*", "");
+
+    private static final List<String> PATHS = Arrays.asList("", "/", "/autoreload", "/autoreload/x", "/ping/",
+            "/ping", "/_rp/x", "/binaries/content/a.png", "/site/style.css", "/site/style.css/x", "/app.js",
+            "/exact", "/exact/", "/robots.txt", "/robotsXtxt", "/a+b", "/aab", "/news/12", "/news/x",
+            "/en/private/x", "/de/private/x", "/ping/\n", "/x\n.css", "\n/x.css", "/css");
+
+    @Test
+    public void testLiteral() {
+        assertEquals("/autoreload", IgnoredPathMatcher.toLiteral("/autoreload"));
+        assertEquals("/a+b.c", IgnoredPathMatcher.toLiteral("/a\\+b\\.c"));
+        assertNull(IgnoredPathMatcher.toLiteral("/robots.txt"));
+        assertNull(IgnoredPathMatcher.toLiteral("/news/\\d+"));
+        assertNull(IgnoredPathMatcher.toLiteral("/(en|nl)"));
+    }
+
+    @Test
+    public void testSameResultAsPatterns() {
+        for (int skip = 0; skip < PATTERNS.size(); skip++) {
+            // all patterns but one, to see each kind of pattern on its own
+            final List<String> patterns = new ArrayList<>(PATTERNS);
+            patterns.remove(skip);
+            final IgnoredPathMatcher matcher = IgnoredPathMatcher.compile(patterns);
+            for (String path : PATHS) {
+                String expected = null;
+                for (String pattern : patterns) {
+                    if (!pattern.isEmpty() && Pattern.compile(pattern).matcher(path).matches()) {
+                        expected = pattern;
+                        break;
+                    }
+                }
+                final String actual = matcher.match(path);
+                assertEquals("path '" + path + "' without " + PATTERNS.get(skip), expected == null, actual == null);
+                if (actual != null) {
+                    assertTrue(Pattern.compile(actual).matcher(path).matches());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testEmpty() {
+        assertTrue(IgnoredPathMatcher.EMPTY.isEmpty());
+        assertNull(IgnoredPathMatcher.EMPTY.match("/"));
+        assertTrue(IgnoredPathMatcher.compile(Arrays.asList("", "[")).isEmpty());
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2026 Bloomreach
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onehippo.forge.ipfilter.common;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class IpAddressParserTest {
+
+    private final ParsedIp ip = new ParsedIp();
+
+    private String parse(final String value) {
+        return IpAddressParser.parse(value, ip) ? ip.toString() : null;
+    }
+
+    private String hop(final String header, final int hop) {
+        return IpAddressParser.parseHop(header, hop, ip) ? ip.toString() : null;
+    }
+
+    @Test
+    public void testIpv4() {
+        assertEquals("127.0.0.1", parse("127.0.0.1"));
+        assertEquals("255.255.255.255", parse(" 255.255.255.255 "));
+        assertEquals("10.0.0.1", parse("10.0.0.1:8080"));
+        assertTrue(ip.isIpv4());
+
+        assertEquals(null, parse("256.0.0.1"));
+        assertEquals(null, parse("1.2.3"));
+        assertEquals(null, parse("1.2.3.4.5"));
+        assertEquals(null, parse("1..3.4"));
+        assertEquals(null, parse("1.2.3.4:"));
+        assertEquals(null, parse("1.2.3.4:80a"));
+        assertFalse(ip.isValid());
+    }
+
+    @Test
+    public void testIpv6() {
+        assertEquals("0:0:0:0:0:0:0:1", parse("::1"));
+        assertEquals("0:0:0:0:0:0:0:0", parse("::"));
+        assertEquals("2001:db8:0:0:0:0:0:0", parse("2001:db8::"));
+        assertEquals("2001:4cb8:29d:1:0:0:0:1", parse("2001:4cb8:29d:1::1"));
+        assertEquals("1:2:3:4:5:6:7:8", parse("1:2:3:4:5:6:7:8"));
+        assertEquals("fe80:0:0:0:0:0:0:1", parse("fe80::1%eth0"));
+        assertEquals("fe80:0:0:0:0:0:0:1", parse("[fe80::1%25eth0]"));
+        assertEquals("0:0:0:0:0:0:0:1", parse("[::1]:8080"));
+        assertEquals("0:0:0:0:0:0:102:304", parse("::1.2.3.4"));
+        assertEquals("1:2:3:4:5:6:102:304", parse("1:2:3:4:5:6:1.2.3.4"));
+        assertTrue(ip.isIpv6());
+
+        assertEquals(null, parse("1:2:3:4:5:6:7:8:9"));
+        assertEquals(null, parse("1:2:3:4:5:6:7"));
+        assertEquals(null, parse("1::2::3"));
+        assertEquals(null, parse("1:::2"));
+        assertEquals(null, parse(":1"));
+        assertEquals(null, parse("1:"));
+        assertEquals(null, parse("12345::1"));
+        assertEquals(null, parse("1:2:3:4:5:6:7::8"));
+        assertEquals(null, parse("g::1"));
+        assertEquals(null, parse("[::1"));
+        assertEquals(null, parse("[::1]x"));
+    }
+
+    @Test
+    public void testIpv4Mapped() {
+        assertEquals("1.2.3.4", parse("::ffff:1.2.3.4"));
+        assertTrue(ip.isIpv4());
+        assertEquals("10.0.0.1", parse("[::ffff:a00:1]:443"));
+        assertTrue(ip.isIpv4());
+    }
+
+    @Test
+    public void testNoHostNames() {
+        assertEquals(null, parse("localhost"));
+        assertEquals(null, parse("unknown"));
+        assertEquals(null, parse("www.example.com"));
+        assertEquals(null, parse(""));
+        assertEquals(null, parse("   "));
+        assertEquals(null, parse(null));
+    }
+
+    @Test
+    public void testHops() {
+        final String header = " 10.0.0.1 , ,[2001:db8::1]:443,192.168.1.1:80 ";
+        assertEquals("10.0.0.1", hop(header, 0));
+        assertEquals("2001:db8:0:0:0:0:0:1", hop(header, 1));
+        assertEquals("192.168.1.1", hop(header, 2));
+        assertEquals(null, hop(header, 3));
+        assertEquals("192.168.1.1", hop(header, -1));
+        assertEquals("2001:db8:0:0:0:0:0:1", hop(header, -2));
+        assertEquals("10.0.0.1", hop(header, -3));
+        assertEquals(null, hop(header, -4));
+
+        assertEquals(null, hop("unknown, 10.0.0.1", 0));
+        assertEquals("10.0.0.1", hop("unknown, 10.0.0.1", 1));
+        assertEquals(null, hop(",,", 0));
+        assertEquals(null, hop(null, 0));
+    }
+
+    @Test
+    public void testMatchesIpMatcher() {
+        final IpMatcher matcher = IpMatcher.valueOf("2001:4cb8:29d:1::/64");
+        assertTrue(IpAddressParser.parse("[2001:4cb8:29d:1:ffff::1]:80", ip));
+        assertTrue(matcher.matches(ip));
+        assertTrue(IpAddressParser.parse("2001:4cb8:29d:2::1", ip));
+        assertFalse(matcher.matches(ip));
+        assertFalse(matcher.matches("localhost"));
+        assertTrue(IpMatcher.valueOf("127.0.0.0/8").matches("127.1.2.3"));
+    }
+}
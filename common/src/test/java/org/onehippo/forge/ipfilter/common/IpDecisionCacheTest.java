@@ -0,0 +1,87 @@
+/*
+ * Copyright 2026 Bloomreach
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onehippo.forge.ipfilter.common;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class IpDecisionCacheTest {
+
+    private static ParsedIp ip(final String address) {
+        final ParsedIp ip = new ParsedIp();
+        assertTrue(IpAddressParser.parse(address, ip));
+        return ip;
+    }
+
+    @Test
+    public void testGetAndPut() {
+        final IpDecisionCache cache = new IpDecisionCache(100, 1, TimeUnit.MINUTES);
+        assertTrue(cache.getCapacity() >= 100);
+        final ParsedIp ipv4 = ip("10.0.0.1");
+        final ParsedIp mapped = ip("::ffff:10.0.0.1");
+        final ParsedIp ipv6 = ip("::a00:1");
+
+        assertEquals(IpDecisionCache.NONE, cache.get(ipv4, 1));
+        cache.put(ipv4, 1, 1);
+        assertEquals(1, cache.get(ipv4, 1));
+        assertEquals(1, cache.get(mapped, 1));
+        assertEquals(IpDecisionCache.NONE, cache.get(ipv4, 2));
+        assertEquals(IpDecisionCache.NONE, cache.get(ipv6, 1));
+
+        cache.put(ipv4, 1, 3);
+        assertEquals(3, cache.get(ipv4, 1));
+        assertEquals(IpDecisionCache.NONE, cache.get(new ParsedIp(), 1));
+        assertEquals(3, cache.getHitCount());
+        assertEquals(3, cache.getMissCount());
+
+        cache.invalidateAll();
+        assertEquals(IpDecisionCache.NONE, cache.get(ipv4, 1));
+    }
+
+    @Test
+    public void testExpiry() {
+        final IpDecisionCache cache = new IpDecisionCache(10, 0, TimeUnit.MINUTES);
+        final ParsedIp ip = ip("2001:db8::1");
+        cache.put(ip, 1, 1);
+        assertEquals(IpDecisionCache.NONE, cache.get(ip, 1));
+    }
+
+    @Test
+    public void testBounded() {
+        final IpDecisionCache cache = new IpDecisionCache(64, 1, TimeUnit.MINUTES);
+        final ParsedIp ip = new ParsedIp();
+        for (int i = 0; i < 10000; i++) {
+            assertTrue(IpAddressParser.parse("10.0." + (i >> 8) + "." + (i & 0xFF), ip));
+            cache.put(ip, 1, 1);
+        }
+        int cached = 0;
+        for (int i = 0; i < 10000; i++) {
+            assertTrue(IpAddressParser.parse("10.0." + (i >> 8) + "." + (i & 0xFF), ip));
+            if (cache.get(ip, 1) == 1) {
+                cached++;
+            }
+        }
+        assertTrue(cached > 0 && cached <= cache.getCapacity());
+        assertTrue(cache.getEvictionCount() >= 10000 - cache.getCapacity());
+        // the last one is always cached
+        assertEquals(1, cache.get(ip, 1));
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright 2026 Bloomreach
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onehippo.forge.ipfilter.common;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.jcr.Node;
+import javax.jcr.NodeIterator;
+import javax.jcr.PathNotFoundException;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.observation.Event;
+
+import org.easymock.IAnswer;
+import org.junit.Test;
+
+import static org.easymock.EasyMock.anyString;
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.getCurrentArguments;
+import static org.easymock.EasyMock.replay;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class IpFilterConfigLoaderTest {
+
+    @Test
+    public void testReloadAndStaleness() {
+        final AtomicInteger loads = new AtomicInteger();
+        final IpFilterConfigLoader loader = newLoader(loads);
+        try {
+            assertTrue(loader.needReloading());
+
+            // nothing loaded yet, so refresh waits for the first load
+            loader.refresh();
+            assertEquals(1, loads.get());
+            assertFalse(loader.needReloading());
+            assertEquals(0L, loader.getInvalidatedAt());
+            assertEquals(0L, loader.getStaleness());
+
+            loader.update(new File(IpFilterConstants.PROPERTIES_NAME));
+            assertTrue(loader.needReloading());
+            assertTrue(loader.getInvalidatedAt() > 0L);
+
+            loader.refresh();
+            assertEquals(2, loads.get());
+            assertEquals(0L, loader.getInvalidatedAt());
+
+            loader.refresh();
+            assertEquals(2, loads.get());
+        } finally {
+            loader.shutdown();
+        }
+    }
+
+    @Test
+    public void testEventBatch() throws Exception {
+        final AtomicInteger loads = new AtomicInteger();
+        final IpFilterConfigLoader loader = newLoader(loads);
+        loader.setEventBatchQuietMillis(100L);
+        loader.setEventBatchMaxMillis(10000L);
+        try {
+            loader.refresh();
+            assertEquals(1, loads.get());
+
+            for (int i = 0; i < 50; i++) {
+                loader.invalidate(null);
+            }
+            // requests keep using the current configuration while the batch is open
+            assertTrue(loader.isBatchOpen());
+            assertFalse(loader.needReloading());
+            assertTrue(loader.getInvalidatedAt() > 0L);
+            loader.refresh();
+            assertEquals(1, loads.get());
+
+            waitForLoads(loads, 2);
+            Thread.sleep(300L);
+            assertEquals(2, loads.get());
+            assertFalse(loader.isBatchOpen());
+            assertEquals(50L, loader.getBatchedEventCount());
+
+            // a full batch is reloaded right away
+            loader.setEventBatchQuietMillis(10000L);
+            loader.setEventBatchMaxSize(3);
+            loader.invalidate(null);
+            loader.invalidate(null);
+            assertTrue(loader.isBatchOpen());
+            loader.invalidate(null);
+            assertFalse(loader.isBatchOpen());
+            waitForLoads(loads, 3);
+        } finally {
+            loader.shutdown();
+        }
+    }
+
+    @Test
+    public void testIncrementalReload() throws Exception {
+        final Node root = node("/config", node("/config/a"), node("/config/b"), node("/config/c"));
+        final IpFilterConfigLoader loader = new IpFilterConfigLoader() {
+            @Override
+            protected Session getSession() {
+                return session(() -> root);
+            }
+        };
+        loader.setConfigurationLocation("/config");
+        loader.setEventBatchMaxSize(1);
+        try {
+            loader.refresh();
+            assertEquals(3L, loader.getParsedNodeCount());
+
+            // only the configuration node with the change is parsed
+            loader.invalidate(event("/config/b/allowed-ip-ranges"));
+            waitForReloads(loader, 2);
+            assertEquals(4L, loader.getParsedNodeCount());
+
+            // a property of the configuration root changes no configuration set
+            loader.invalidate(event("/config/forwarded-host-header"));
+            waitForReloads(loader, 3);
+            assertEquals(4L, loader.getParsedNodeCount());
+
+            // changes of unknown scope parse everything
+            loader.invalidate(null);
+            waitForReloads(loader, 4);
+            assertEquals(7L, loader.getParsedNodeCount());
+
+            loader.update(new File(IpFilterConstants.PROPERTIES_NAME));
+            loader.refresh();
+            waitForReloads(loader, 5);
+            assertEquals(10L, loader.getParsedNodeCount());
+        } finally {
+            loader.shutdown();
+        }
+    }
+
+    private static Session session(final IAnswer<Node> getNode) {
+        final Session session = createNiceMock(Session.class);
+        try {
+            expect(session.getNode(anyString())).andAnswer(getNode).anyTimes();
+        } catch (RepositoryException e) {
+            throw new IllegalStateException(e);
+        }
+        replay(session);
+        return session;
+    }
+
+    private static Node node(final String path, final Node... children) throws RepositoryException {
+        final Node node = createNiceMock(Node.class);
+        expect(node.getPath()).andReturn(path).anyTimes();
+        expect(node.getName()).andReturn(path.substring(path.lastIndexOf('/') + 1)).anyTimes();
+        expect(node.getNodes()).andAnswer(() -> nodes(children)).anyTimes();
+        expect(node.getProperty(anyString())).andAnswer(() -> {
+            throw new PathNotFoundException(path + '/' + getCurrentArguments()[0]);
+        }).anyTimes();
+        replay(node);
+        return node;
+    }
+
+    private static NodeIterator nodes(final Node... nodes) {
+        final Iterator<Node> iterator = Arrays.asList(nodes).iterator();
+        final NodeIterator nodeIterator = createNiceMock(NodeIterator.class);
+        expect(nodeIterator.hasNext()).andAnswer(iterator::hasNext).anyTimes();
+        expect(nodeIterator.nextNode()).andAnswer(iterator::next).anyTimes();
+        replay(nodeIterator);
+        return nodeIterator;
+    }
+
+    private static Event event(final String path) throws RepositoryException {
+        final Event event = createNiceMock(Event.class);
+        expect(event.getPath()).andReturn(path).anyTimes();
+        replay(event);
+        return event;
+    }
+
+    private static void waitForReloads(final IpFilterConfigLoader loader, final long expected)
+            throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 5000L;
+        while (loader.getReloadCount() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20L);
+        }
+        assertEquals(expected, loader.getReloadCount());
+    }
+
+    private static IpFilterConfigLoader newLoader(final AtomicInteger loads) {
+        return new IpFilterConfigLoader() {
+            @Override
+            protected Session getSession() {
+                loads.incrementAndGet();
+                // no configuration node
+                return session(() -> {
+                    throw new PathNotFoundException(String.valueOf(getCurrentArguments()[0]));
+                });
+            }
+        };
+    }
+
+    private static void waitForLoads(final AtomicInteger loads, final int expected) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 5000L;
+        while (loads.get() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20L);
+        }
+        assertEquals(expected, loads.get());
+    }
+}
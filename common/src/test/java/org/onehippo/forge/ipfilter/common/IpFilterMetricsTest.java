@@ -0,0 +1,104 @@
+/*
+ * Copyright 2026 Bloomreach
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onehippo.forge.ipfilter.common;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class IpFilterMetricsTest {
+
+    @Test
+    public void testDecisions() {
+        final AuthObject site = AuthObject.builder().hosts(Collections.singleton("www.example.com")).allowCmsUsers(true)
+                .userCache(10, 10).name("site").build();
+        final IpFilterMetrics metrics = new IpFilterMetrics();
+        metrics.decision(site, Status.OK);
+        metrics.decision(site, Status.FORBIDDEN);
+        metrics.decision(site, Status.FORBIDDEN);
+        metrics.decision(AuthObject.INVALID, Status.OK);
+
+        assertEquals(2, metrics.getDecisionCount(Status.OK));
+        assertEquals(2, metrics.getDecisionCount(Status.FORBIDDEN));
+        assertEquals(Long.valueOf(0), metrics.getDecisionCounts().get("UNAUTHORIZED"));
+        assertEquals(Long.valueOf(1), metrics.getDecisionCountsByConfiguration().get("site:OK"));
+        assertEquals(Long.valueOf(2), metrics.getDecisionCountsByConfiguration().get("site:FORBIDDEN"));
+        assertEquals(Long.valueOf(1), metrics.getDecisionCountsByConfiguration().get("none:OK"));
+        assertFalse(metrics.getDecisionCountsByConfiguration().containsKey("site:UNAUTHORIZED"));
+    }
+
+    @Test
+    public void testLatencies() {
+        final IpFilterMetrics metrics = new IpFilterMetrics();
+        metrics.getLatency(IpFilterMetrics.Stage.HOST).record(100L);
+        metrics.getLatency(IpFilterMetrics.Stage.HOST).record(200L);
+
+        assertEquals(Long.valueOf(2), metrics.getLatencyPercentiles().get("HOST.count"));
+        assertTrue(metrics.getLatencyPercentiles().get("HOST.max") >= 200L);
+        assertEquals(Long.valueOf(0), metrics.getLatencyPercentiles().get("DENIAL.p99"));
+
+        metrics.resetLatencies();
+        assertEquals(Long.valueOf(0), metrics.getLatencyPercentiles().get("HOST.count"));
+    }
+
+    @Test
+    public void testJmx() throws Exception {
+        final BaseIpFilter filter = new BaseIpFilter() {
+            @Override
+            protected Status authenticate(final AuthObject authObject, final HttpServletRequest request) {
+                return Status.OK;
+            }
+
+            @Override
+            protected void initializeConfigManager() {
+            }
+
+            @Override
+            protected String getDisabledPropertyName() {
+                return "test.ipfilter.disabled";
+            }
+        };
+        filter.getMetrics().authAttempt();
+        filter.getMetrics().authFailure();
+
+        final IpFilterStatistics statistics = new IpFilterStatistics(filter);
+        statistics.register("/site/TestFilter");
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        final ObjectName name = new ObjectName("org.onehippo.forge.ipfilter:type=IpFilter,name="
+                + ObjectName.quote("/site/TestFilter"));
+        try {
+            assertTrue(server.isRegistered(name));
+            assertEquals(1L, server.getAttribute(name, "AuthAttempts"));
+            assertEquals(1L, server.getAttribute(name, "AuthFailures"));
+            assertEquals(0L, server.getAttribute(name, "Reloads"));
+            assertTrue(server.getAttribute(name, "LatencyPercentiles") != null);
+        } finally {
+            statistics.unregister();
+        }
+        assertFalse(server.isRegistered(name));
+    }
+}
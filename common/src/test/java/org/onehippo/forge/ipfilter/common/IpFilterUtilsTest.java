@@ -1,5 +1,5 @@
 /*
- * Copyright 2018-2022 Bloomreach
+ * Copyright 2018-2026 Bloomreach
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -47,6 +47,22 @@ public class IpFilterUtilsTest {
 
     }
 
+    @Test
+    public void testGetClientIpHop() {
+        HttpServletRequest request = createMock(HttpServletRequest.class);
+        expect(request.getHeader(IpFilterConstants.HEADER_X_FORWARDED_FOR))
+                .andReturn("10.0.0.1, 10.0.0.2, 10.0.0.3").anyTimes();
+        replay(request);
+        final ParsedIp ip = new ParsedIp();
+        assertTrue(IpFilterUtils.getClientIp(request, null, ip));
+        assertEquals("10.0.0.1", ip.toString());
+        assertTrue(IpFilterUtils.getClientIp(request, null, 1, ip));
+        assertEquals("10.0.0.2", ip.toString());
+        assertTrue(IpFilterUtils.getClientIp(request, null, -1, ip));
+        assertEquals("10.0.0.3", ip.toString());
+        assertFalse(IpFilterUtils.getClientIp(request, null, 3, ip));
+    }
+
     @Test
     public void testGetHost() {
         final Set<String> E = Collections.emptySet();
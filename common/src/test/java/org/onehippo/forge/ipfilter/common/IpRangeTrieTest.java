@@ -0,0 +1,126 @@
+/*
+ * Copyright 2026 Bloomreach
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onehippo.forge.ipfilter.common;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class IpRangeTrieTest {
+
+    private static IpRangeTrie trie(final String... ranges) {
+        final List<IpMatcher> matchers = new ArrayList<>();
+        for (String range : ranges) {
+            matchers.add(IpMatcher.valueOf(range));
+        }
+        return IpRangeTrie.compile(matchers);
+    }
+
+    @Test
+    public void testEmpty() {
+        final IpRangeTrie trie = trie();
+        assertTrue(trie.isEmpty());
+        assertFalse(trie.matches("127.0.0.1"));
+        assertFalse(trie.matches("::1"));
+    }
+
+    @Test
+    public void testIpv4() {
+        final IpRangeTrie trie = trie("127.0.0.1", "10.0.0.0/8", "192.168.1.0/24", "172.16.5.4/12");
+        assertEquals(4, trie.size());
+        assertTrue(trie.matches("127.0.0.1"));
+        assertFalse(trie.matches("127.0.0.2"));
+        assertTrue(trie.matches("10.255.3.4"));
+        assertFalse(trie.matches("11.0.0.0"));
+        assertTrue(trie.matches(" 192.168.1.77 "));
+        assertFalse(trie.matches("192.168.2.1"));
+        // host bits of the range are ignored
+        assertTrue(trie.matches("172.31.255.255"));
+        assertFalse(trie.matches("172.32.0.0"));
+    }
+
+    @Test
+    public void testIpv6() {
+        final IpRangeTrie trie = trie("0:0:0:0:0:0:0:1", "2001:4cb8:29d:1::/64", "2001:db8::/32");
+        assertTrue(trie.matches("::1"));
+        assertTrue(trie.matches("2001:4cb8:29d:1:aaaa:bbbb:cccc:dddd"));
+        assertFalse(trie.matches("2001:4cb8:29d:2::1"));
+        assertTrue(trie.matches("2001:db8:ffff::"));
+        assertFalse(trie.matches("2001:db9::"));
+    }
+
+    @Test
+    public void testFamiliesAreSeparated() {
+        final IpRangeTrie ipv4 = trie("0.0.0.0/0");
+        assertTrue(ipv4.matches("8.8.8.8"));
+        assertFalse(ipv4.matches("2001:db8::1"));
+
+        final IpRangeTrie ipv6 = trie("::/0");
+        assertTrue(ipv6.matches("2001:db8::1"));
+        assertFalse(ipv6.matches("8.8.8.8"));
+
+        // IPv4-mapped IPv6 addresses are matched as IPv4, like InetAddress does
+        assertTrue(ipv4.matches("::ffff:8.8.8.8"));
+    }
+
+    @Test
+    public void testOverlappingRanges() {
+        final IpRangeTrie narrowFirst = trie("10.1.2.0/24", "10.1.2.3", "10.0.0.0/8");
+        final IpRangeTrie wideFirst = trie("10.0.0.0/8", "10.1.2.0/24", "10.1.2.3");
+        for (IpRangeTrie trie : new IpRangeTrie[]{narrowFirst, wideFirst}) {
+            assertTrue(trie.matches("10.1.2.3"));
+            assertTrue(trie.matches("10.200.0.1"));
+            assertFalse(trie.matches("9.255.255.255"));
+        }
+
+        final IpRangeTrie siblings = trie("10.1.2.0/25", "10.1.2.128/26", "10.1.3.0/24");
+        assertTrue(siblings.matches("10.1.2.127"));
+        assertTrue(siblings.matches("10.1.2.128"));
+        assertFalse(siblings.matches("10.1.2.192"));
+        assertTrue(siblings.matches("10.1.3.250"));
+        assertFalse(siblings.matches("10.1.4.0"));
+    }
+
+    @Test
+    public void testSameResultAsIpMatcher() {
+        final String[] ranges = {"127.0.0.1", "80.100.160.250", "81.21.0.0/16", "2001:4cb8:29d:1::/64", "fe80::/10"};
+        final String[] addresses = {"127.0.0.1", "127.0.0.10", "80.100.160.250", "81.21.138.121", "81.22.0.1",
+                "2001:4cb8:29d:1::5", "2001:4cb8:29d:0::5", "fe80::1", "fec0::1", "::1"};
+        final IpRangeTrie trie = trie(ranges);
+        for (String address : addresses) {
+            boolean expected = false;
+            for (String range : ranges) {
+                expected |= IpMatcher.valueOf(range).matches(address);
+            }
+            assertEquals(address, expected, trie.matches(address));
+        }
+    }
+
+    @Test
+    public void testNoHostNameResolving() {
+        final IpRangeTrie trie = trie("127.0.0.1");
+        assertFalse(trie.matches("localhost"));
+        assertFalse(trie.matches("unknown"));
+        assertFalse(trie.matches(""));
+        assertFalse(trie.matches((String) null));
+    }
+}
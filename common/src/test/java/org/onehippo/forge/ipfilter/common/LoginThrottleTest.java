@@ -0,0 +1,86 @@
+/*
+ * Copyright 2026 Bloomreach
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onehippo.forge.ipfilter.common;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LoginThrottleTest {
+
+    private final AtomicLong now = new AtomicLong(-TimeUnit.HOURS.toNanos(1));
+
+    @Test
+    public void testBurstAndRefill() {
+        // 3 failures at once, then one per 10 seconds
+        final LoginThrottle throttle = new LoginThrottle(100, 3, 6, now::get);
+        final ParsedIp ip = parse("10.0.0.1");
+        for (int i = 0; i < 3; i++) {
+            assertFalse(throttle.isThrottled(ip, 0));
+            throttle.onFailure(ip, 0);
+        }
+        assertTrue(throttle.isThrottled(ip, 0));
+        assertFalse(throttle.isThrottled(parse("10.0.0.2"), 0));
+        assertFalse(throttle.isThrottled(parse("::ffff:10.0.0.1"), 7));
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        assertFalse(throttle.isThrottled(ip, 0));
+        throttle.onFailure(ip, 0);
+        assertTrue(throttle.isThrottled(ip, 0));
+        assertEquals(2, throttle.getThrottledCount());
+
+        // failures while throttled don't postpone recovery beyond an empty bucket
+        for (int i = 0; i < 100; i++) {
+            throttle.onFailure(ip, 0);
+        }
+        now.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        assertFalse(throttle.isThrottled(ip, 0));
+    }
+
+    @Test
+    public void testPerUser() {
+        final LoginThrottle throttle = new LoginThrottle(100, 1, 1, now::get);
+        final ParsedIp ip = parse("2001:db8::1");
+        throttle.onFailure(ip, "admin".hashCode());
+        assertTrue(throttle.isThrottled(ip, "admin".hashCode()));
+        assertFalse(throttle.isThrottled(ip, "editor".hashCode()));
+        throttle.invalidateAll();
+        assertFalse(throttle.isThrottled(ip, "admin".hashCode()));
+    }
+
+    @Test
+    public void testBounded() {
+        final LoginThrottle throttle = new LoginThrottle(16, 1, 1, now::get);
+        assertEquals(16, throttle.getCapacity());
+        for (int i = 0; i < 1000; i++) {
+            throttle.onFailure(parse("10.0." + (i >> 8) + "." + (i & 0xFF)), 0);
+        }
+        // the latest failure is always kept
+        assertTrue(throttle.isThrottled(parse("10.0.3.231"), 0));
+    }
+
+    private static ParsedIp parse(final String ip) {
+        final ParsedIp parsed = new ParsedIp();
+        assertTrue(IpAddressParser.parse(ip, parsed));
+        return parsed;
+    }
+}
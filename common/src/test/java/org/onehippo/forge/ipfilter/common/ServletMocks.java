@@ -0,0 +1,51 @@
+/*
+ * Copyright 2026 Bloomreach
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onehippo.forge.ipfilter.common;
+
+import java.util.Map;
+
+import jakarta.servlet.FilterConfig;
+import jakarta.servlet.ServletContext;
+
+import static org.easymock.EasyMock.anyString;
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.getCurrentArguments;
+import static org.easymock.EasyMock.replay;
+
+/**
+ * Servlet API mocks shared by the filter tests of all modules.
+ */
+public final class ServletMocks {
+
+    private ServletMocks() {
+    }
+
+    /**
+     * @return filter configuration with the given init parameters and a servlet context without any parameters
+     */
+    public static FilterConfig filterConfig(final Map<String, String> parameters) {
+        final ServletContext servletContext = createNiceMock(ServletContext.class);
+        replay(servletContext);
+        final FilterConfig filterConfig = createNiceMock(FilterConfig.class);
+        expect(filterConfig.getFilterName()).andReturn("ipfilter").anyTimes();
+        expect(filterConfig.getServletContext()).andReturn(servletContext).anyTimes();
+        expect(filterConfig.getInitParameter(anyString()))
+                .andAnswer(() -> parameters.get((String) getCurrentArguments()[0])).anyTimes();
+        replay(filterConfig);
+        return filterConfig;
+    }
+}
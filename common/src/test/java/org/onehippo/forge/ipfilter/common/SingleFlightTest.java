@@ -0,0 +1,140 @@
+/*
+ * Copyright 2026 Bloomreach
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onehippo.forge.ipfilter.common;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SingleFlightTest {
+
+    @Test
+    public void testConcurrentCallsShareResult() throws Exception {
+        final SingleFlight<String, Boolean> flight = new SingleFlight<>();
+        final AtomicInteger calls = new AtomicInteger();
+        final CountDownLatch release = new CountDownLatch(1);
+        final int threads = 8;
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> flight.execute("admin", () -> {
+                    calls.incrementAndGet();
+                    try {
+                        release.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return Boolean.TRUE;
+                })));
+            }
+            // wait until all other callers joined the call in flight
+            final long deadline = System.currentTimeMillis() + 5000;
+            while (flight.getSharedCount() < threads - 1 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, calls.get());
+        assertEquals(1, flight.getExecutedCount());
+        assertEquals(threads - 1, flight.getSharedCount());
+        assertEquals(0, flight.getInFlightCount());
+    }
+
+    @Test
+    public void testSequentialCallsExecuteAgain() {
+        final SingleFlight<String, Integer> flight = new SingleFlight<>();
+        final AtomicInteger calls = new AtomicInteger();
+        assertEquals(1, (int) flight.execute("a", calls::incrementAndGet));
+        assertEquals(2, (int) flight.execute("a", calls::incrementAndGet));
+        assertEquals(3, (int) flight.execute("b", calls::incrementAndGet));
+        assertEquals(0, flight.getSharedCount());
+    }
+
+    @Test
+    public void testFailureIsNotKept() {
+        final SingleFlight<String, Integer> flight = new SingleFlight<>();
+        try {
+            flight.execute("a", () -> {
+                throw new IllegalStateException("down");
+            });
+            fail("Expected exception");
+        } catch (IllegalStateException e) {
+            assertEquals("down", e.getMessage());
+        }
+        assertEquals(1, (int) flight.execute("a", () -> 1));
+        assertEquals(0, flight.getInFlightCount());
+    }
+
+    @Test
+    public void testAsyncCallsShareResult() throws Exception {
+        final SingleFlight<String, Boolean> flight = new SingleFlight<>();
+        final CountDownLatch release = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final Future<Boolean> first = flight.executeAsync("admin", () -> {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return Boolean.TRUE;
+            }, executor);
+            final Future<Boolean> second = flight.executeAsync("admin", () -> Boolean.FALSE, executor);
+            assertSame(first, second);
+            assertFalse(first.isDone());
+            release.countDown();
+            assertTrue(second.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, flight.getExecutedCount());
+        assertEquals(1, flight.getSharedCount());
+    }
+
+    @Test
+    public void testAsyncRejected() {
+        final SingleFlight<String, Boolean> flight = new SingleFlight<>();
+        try {
+            flight.executeAsync("admin", () -> Boolean.TRUE, command -> {
+                throw new RejectedExecutionException("full");
+            });
+            fail("Expected exception");
+        } catch (RejectedExecutionException e) {
+            assertEquals(0, flight.getInFlightCount());
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2026 Bloomreach
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onehippo.forge.ipfilter.common.file;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FileWatchRegistryTest {
+
+    private static final String PROPERTIES = FileWatchRegistryTest.class.getSimpleName() + ".properties";
+
+    private final FileWatchRegistry registry = new FileWatchRegistry("test-file-watch", 200L);
+    private File tmpDir;
+
+    @Before
+    public void setUp() {
+        tmpDir = Files.createTempDir();
+    }
+
+    @After
+    public void tearDown() {
+        registry.shutdown();
+    }
+
+    @Test
+    public void testReferenceCounting() {
+        final FileWatchRegistry.Registration first = registry.register(file -> {}, ImmutableSet.of(tmpDir.getPath()),
+                ImmutableSet.of(PROPERTIES));
+        final FileWatchRegistry.Registration second = registry.register(file -> {}, ImmutableSet.of(tmpDir.getPath()),
+                ImmutableSet.of(PROPERTIES));
+        assertTrue(first.isValid());
+        assertTrue(registry.isRunning());
+        assertEquals(1, registry.getWatchedDirectoryCount());
+        assertEquals(2, registry.getRegistrationCount());
+
+        first.close();
+        first.close();
+        assertFalse(first.isValid());
+        assertTrue(registry.isRunning());
+        assertEquals(1, registry.getWatchedDirectoryCount());
+
+        second.close();
+        assertFalse(registry.isRunning());
+        assertEquals(0, registry.getWatchedDirectoryCount());
+
+        final FileWatchRegistry.Registration missing = registry.register(file -> {},
+                ImmutableSet.of(new File(tmpDir, "missing").getPath()), ImmutableSet.of(PROPERTIES));
+        assertFalse(missing.isValid());
+        assertFalse(registry.isRunning());
+    }
+
+    @Test
+    public void testDebounce() throws Exception {
+        final AtomicInteger updates = new AtomicInteger();
+        registry.register(file -> updates.incrementAndGet(), ImmutableSet.of(tmpDir.getPath()),
+                ImmutableSet.of(PROPERTIES));
+
+        final File file = new File(tmpDir, PROPERTIES);
+        for (int i = 0; i < 5; i++) {
+            Files.asCharSink(file, StandardCharsets.UTF_8).write("allowed-ip-ranges=127.0.0.1," + i);
+            Thread.sleep(20L);
+        }
+        Files.asCharSink(new File(tmpDir, "other.properties"), StandardCharsets.UTF_8).write("ignored");
+        waitFor(updates, 1);
+        Thread.sleep(400L);
+        assertEquals(1, updates.get());
+    }
+
+    @Test
+    public void testClosedRegistrationIsNotNotified() throws Exception {
+        final AtomicInteger closedUpdates = new AtomicInteger();
+        final AtomicInteger openUpdates = new AtomicInteger();
+        final FileWatchRegistry.Registration closed = registry.register(file -> closedUpdates.incrementAndGet(),
+                ImmutableSet.of(tmpDir.getPath()), ImmutableSet.of(PROPERTIES));
+        registry.register(file -> openUpdates.incrementAndGet(), ImmutableSet.of(tmpDir.getPath()),
+                ImmutableSet.of(PROPERTIES), 0L);
+
+        Files.asCharSink(new File(tmpDir, PROPERTIES), StandardCharsets.UTF_8).write("ignored-paths=/ping/.*");
+        closed.close();
+        waitFor(openUpdates, 1);
+        Thread.sleep(400L);
+        assertEquals(0, closedUpdates.get());
+    }
+
+    private static void waitFor(final AtomicInteger counter, final int expected) throws InterruptedException {
+        // polling watch services, e.g. on macOS, may take seconds to see a change
+        final long deadline = System.currentTimeMillis() + 15000L;
+        while (counter.get() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50L);
+        }
+        assertTrue(counter.get() >= expected);
+    }
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2017-2020 Bloomreach
+ * Copyright 2017-2026 Bloomreach
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -15,6 +15,17 @@
  */
 package org.onehippo.forge.ipfilter.hst;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
 import org.hippoecm.hst.core.container.ComponentManager;
 import org.hippoecm.hst.site.HstServices;
 import org.hippoecm.repository.HippoRepository;
@@ -22,8 +33,13 @@ import org.hippoecm.repository.HippoRepositoryFactory;
 
 import org.onehippo.forge.ipfilter.common.AuthObject;
 import org.onehippo.forge.ipfilter.common.BaseIpFilter;
+import org.onehippo.forge.ipfilter.common.CredentialCache;
+import org.onehippo.forge.ipfilter.common.IpAddressParser;
 import org.onehippo.forge.ipfilter.common.IpFilterConstants;
 import org.onehippo.forge.ipfilter.common.IpFilterUtils;
+import org.onehippo.forge.ipfilter.common.LoginThrottle;
+import org.onehippo.forge.ipfilter.common.ParsedIp;
+import org.onehippo.forge.ipfilter.common.SingleFlight;
 import org.onehippo.forge.ipfilter.common.Status;
 
 import javax.jcr.LoginException;
@@ -36,6 +52,11 @@ import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.HashCode;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
 /**
  * Filter allowing only access for IP ranges that are configured.
  */
@@ -44,51 +65,265 @@ public class IpFilter extends BaseIpFilter {
     private static final Logger log = LoggerFactory.getLogger(IpFilter.class);
 
     private static final String SYSTEM_PROPERTY_DISABLED = "hippo.ipfilter.disabled";
+    // throttle bucket of clients without a parseable IP address
+    private static final String UNPARSEABLE_CLIENT = "0.0.0.0";
+
+    private List<RepositoryEndpoint> repositories = ImmutableList.of();
+
+    // concurrent requests with the same credentials share one repository login
+    private final SingleFlight<HashCode, LoginResult> logins = new SingleFlight<>();
+
+    private enum LoginResult {
+        SUCCESS, REJECTED, UNAVAILABLE
+    }
+
+    // logins run on a bounded pool, so slow repository logins don't hold all container threads
+    private ThreadPoolExecutor authExecutor;
+    private long authTimeoutMillis = IpFilterConstants.DEFAULT_AUTH_TIMEOUT_MILLIS;
+    private Status authTimeoutStatus = Status.SERVICE_UNAVAILABLE;
 
-    private String primaryRepositoryAddress;
-    private String secondaryRepositoryAddress;
+    // failed logins per client, so guessing passwords can't drive unbounded repository load
+    private LoginThrottle throttle;
+    private boolean throttlePerUser;
+    private Status throttleStatus = Status.TOO_MANY_REQUESTS;
 
     @Override
     public void init(final FilterConfig filterConfig) throws ServletException {
         super.init(filterConfig);
 
-        primaryRepositoryAddress = IpFilterConstants.DEFAULT_REPOSITORY_ADDRESS;
-        secondaryRepositoryAddress = IpFilterUtils.getParameter(filterConfig, IpFilterConstants.REPOSITORY_ADDRESS_PARAM, null);
+        final String secondaryRepositoryAddress = IpFilterUtils.getParameter(filterConfig, IpFilterConstants.REPOSITORY_ADDRESS_PARAM, null);
+        final int failureThreshold = IpFilterUtils.getIntParameter(filterConfig,
+                IpFilterConstants.REPOSITORY_FAILURE_THRESHOLD_PARAM, IpFilterConstants.DEFAULT_REPOSITORY_FAILURE_THRESHOLD);
+        final int retrySeconds = IpFilterUtils.getIntParameter(filterConfig,
+                IpFilterConstants.REPOSITORY_RETRY_PARAM, IpFilterConstants.DEFAULT_REPOSITORY_RETRY_SECONDS);
+
+        final List<RepositoryEndpoint> endpoints = new ArrayList<>();
+        endpoints.add(new RepositoryEndpoint(IpFilterConstants.DEFAULT_REPOSITORY_ADDRESS, this::resolveRepository,
+                failureThreshold, retrySeconds));
+        if (!Strings.isNullOrEmpty(secondaryRepositoryAddress)) {
+            endpoints.add(new RepositoryEndpoint(secondaryRepositoryAddress, this::resolveRepository,
+                    failureThreshold, retrySeconds));
+        }
+        repositories = ImmutableList.copyOf(endpoints);
+
+        final int threads = IpFilterUtils.getIntParameter(filterConfig, IpFilterConstants.AUTH_THREADS_PARAM,
+                IpFilterConstants.DEFAULT_AUTH_THREADS);
+        final int queueSize = IpFilterUtils.getIntParameter(filterConfig, IpFilterConstants.AUTH_QUEUE_SIZE_PARAM,
+                IpFilterConstants.DEFAULT_AUTH_QUEUE_SIZE);
+        authTimeoutMillis = IpFilterUtils.getIntParameter(filterConfig, IpFilterConstants.AUTH_TIMEOUT_PARAM,
+                IpFilterConstants.DEFAULT_AUTH_TIMEOUT_MILLIS);
+        authTimeoutStatus = parseTimeoutStatus(IpFilterUtils.getParameter(filterConfig,
+                IpFilterConstants.AUTH_TIMEOUT_STATUS_PARAM, null));
+        authExecutor = new ThreadPoolExecutor(Math.max(1, threads), Math.max(1, threads), 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueSize)),
+                new ThreadFactoryBuilder().setNameFormat("ipfilter-auth-%d").setDaemon(true).build());
+        authExecutor.allowCoreThreadTimeOut(true);
+
+        final int throttleRate = IpFilterUtils.getIntParameter(filterConfig, IpFilterConstants.THROTTLE_RATE_PARAM,
+                IpFilterConstants.DEFAULT_THROTTLE_RATE);
+        if (throttleRate > 0) {
+            final int throttleSize = IpFilterUtils.getIntParameter(filterConfig, IpFilterConstants.THROTTLE_SIZE_PARAM,
+                    IpFilterConstants.DEFAULT_THROTTLE_SIZE);
+            final int throttleBurst = IpFilterUtils.getIntParameter(filterConfig, IpFilterConstants.THROTTLE_BURST_PARAM,
+                    IpFilterConstants.DEFAULT_THROTTLE_BURST);
+            throttle = new LoginThrottle(Math.max(1, throttleSize), Math.max(1, throttleBurst), throttleRate);
+        } else {
+            log.info("Throttling of failed logins is disabled");
+            throttle = null;
+        }
+        throttlePerUser = Boolean.parseBoolean(IpFilterUtils.getParameter(filterConfig,
+                IpFilterConstants.THROTTLE_PER_USER_PARAM, "false"));
+        throttleStatus = "401".equals(IpFilterUtils.getParameter(filterConfig, IpFilterConstants.THROTTLE_STATUS_PARAM, null))
+                ? Status.UNAUTHORIZED : Status.TOO_MANY_REQUESTS;
+    }
+
+    @Override
+    public void destroy() {
+        if (authExecutor != null) {
+            authExecutor.shutdownNow();
+        }
+        super.destroy();
+    }
+
+    private static Status parseTimeoutStatus(final String value) {
+        if (Strings.isNullOrEmpty(value)) {
+            return Status.SERVICE_UNAVAILABLE;
+        }
+        switch (value.trim().toUpperCase(Locale.ROOT)) {
+            case "401":
+            case "UNAUTHORIZED":
+                return Status.UNAUTHORIZED;
+            case "503":
+            case "SERVICE_UNAVAILABLE":
+                return Status.SERVICE_UNAVAILABLE;
+            default:
+                log.warn("Invalid value '{}' for {}, using 503", value, IpFilterConstants.AUTH_TIMEOUT_STATUS_PARAM);
+                return Status.SERVICE_UNAVAILABLE;
+        }
     }
 
     @Override
     protected Status authenticate(final AuthObject authObject, final HttpServletRequest request) {
-        final UserCredentials credentials = new UserCredentials(request.getHeader(IpFilterConstants.HEADER_AUTHORIZATION));
-        if (!credentials.valid()) {
+        final String authorization = request.getHeader(IpFilterConstants.HEADER_AUTHORIZATION);
+        if (authorization == null) {
             log.debug("Invalid credentials, null or empty");
             return Status.UNAUTHORIZED;
         }
+        // keyed by the raw header, so a cache hit needs no decoding
+        final HashCode key = CredentialCache.key(authorization);
         if (authObject.isCacheEnabled()) {
-            final Boolean cached = userCache.getUnchecked(credentials.getUsername() + credentials.getPassword());
-            if (cached != null && cached) {
-                log.debug("Cached user: {}", credentials);
+            if (authObject.getCredentialCache().contains(key)) {
+                log.debug("Cached user");
                 return Status.OK;
             }
         } else {
             log.debug("User cache is not used");
         }
-        Session session = null;
+        final UserCredentials credentials = new UserCredentials(authorization);
+        if (!credentials.valid()) {
+            log.debug("Invalid credentials, null or empty");
+            return Status.UNAUTHORIZED;
+        }
+        final ParsedIp ip = throttle == null ? null : getThrottledIp(request, authObject);
+        // keyed by the seeded HMAC of the credential cache, so chosen user names can't share a bucket
+        final int userKey = throttlePerUser ? CredentialCache.key(credentials.getUsername()).asInt() : 0;
+        if (throttle != null && throttle.isThrottled(ip, userKey)) {
+            log.debug("Too many failed logins from {}, not authenticating user: {}", ip, credentials.getUsername());
+            getMetrics().authThrottled();
+            return throttleStatus;
+        }
+        final LoginResult result = awaitLogin(key, credentials);
+        if (result == null) {
+            return authTimeoutStatus;
+        }
+        if (result != LoginResult.SUCCESS) {
+            // an unavailable repository says nothing about the credentials
+            if (result == LoginResult.REJECTED && throttle != null) {
+                throttle.onFailure(ip, userKey);
+            }
+            return Status.UNAUTHORIZED;
+        }
+        if (authObject.isCacheEnabled()) {
+            log.debug("Adding user to cache {}", credentials.getUsername());
+            authObject.getCredentialCache().put(key);
+        }
+        return Status.OK;
+    }
+
+    /**
+     * Client IP address to throttle failed logins of. A forwarded header that doesn't parse must not skip the throttle,
+     * so it falls back to the remote address, and if that doesn't parse either all such clients share one bucket.
+     */
+    private static ParsedIp getThrottledIp(final HttpServletRequest request, final AuthObject authObject) {
+        final ParsedIp ip = new ParsedIp();
+        if (!IpFilterUtils.getClientIp(request, authObject.getForwardedForHeader(), authObject.getForwardedForHop(),
+                ip) && !IpAddressParser.parse(Strings.nullToEmpty(request.getRemoteAddr()), ip)) {
+            IpAddressParser.parse(UNPARSEABLE_CLIENT, ip);
+        }
+        return ip;
+    }
+
+    /**
+     * @return result of the login, or null if it could not be completed in time
+     */
+    private LoginResult awaitLogin(final HashCode key, final UserCredentials credentials) {
+        final CompletableFuture<LoginResult> login;
         try {
-            // try to authenticate:
-            session = getSession(credentials);
-            if (session == null) {
-                log.debug("No valid session for user: {}", credentials.getUsername());
-                return Status.UNAUTHORIZED;
+            login = logins.executeAsync(key, () -> login(credentials), authExecutor);
+        } catch (RejectedExecutionException e) {
+            getMetrics().authRejected();
+            log.debug("Authentication queue full, not authenticating user: {}", credentials.getUsername());
+            return null;
+        }
+        try {
+            return login.get(authTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            getMetrics().authTimeout();
+            log.debug("Authentication of user {} did not complete within {} ms", credentials.getUsername(), authTimeoutMillis);
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RejectedExecutionException) {
+                getMetrics().authRejected();
+                return null;
             }
-            log.debug("Successfully validated user: {}", credentials.getUsername());
-            if (authObject.isCacheEnabled()){
-                log.debug("Adding user to cache {}", credentials.getUsername());
-                userCache.put(credentials.getUsername() + credentials.getPassword(), Boolean.TRUE);
+            log.error("Error during authentication", e.getCause());
+            getMetrics().authError();
+            return LoginResult.UNAVAILABLE;
+        }
+    }
+
+    /**
+     * @return number of logins waiting for an authentication thread
+     */
+    public int getAuthQueueDepth() {
+        return authExecutor == null ? 0 : authExecutor.getQueue().size();
+    }
+
+    /**
+     * @return number of logins being executed
+     */
+    public int getAuthActiveCount() {
+        return authExecutor == null ? 0 : authExecutor.getActiveCount();
+    }
+
+    /**
+     * @return number of requests for which the login did not complete in time
+     */
+    public long getAuthTimeoutCount() {
+        return getMetrics().getAuthTimeoutCount();
+    }
+
+    /**
+     * @return number of requests for which the login was not started because the queue was full
+     */
+    public long getAuthRejectedCount() {
+        return getMetrics().getAuthRejectedCount();
+    }
+
+    /**
+     * @return number of requests refused because of too many failed logins
+     */
+    public long getThrottledCount() {
+        return getMetrics().getAuthThrottledCount();
+    }
+
+    /**
+     * Login at the first available repository, failing over to the next one if it is unavailable.
+     */
+    private LoginResult login(final UserCredentials credentials) {
+        getMetrics().authAttempt();
+        for (RepositoryEndpoint repository : repositories) {
+            if (!repository.isAvailable()) {
+                log.debug("Skipping unavailable repository {}", repository.getAddress());
+                continue;
+            }
+            Session session = null;
+            try {
+                session = repository.login(credentials.getUsername(), credentials.getPassword().toCharArray());
+                if (session == null) {
+                    log.debug("No valid session for user: {}", credentials.getUsername());
+                    getMetrics().authFailure();
+                    return LoginResult.REJECTED;
+                }
+                log.debug("Successfully validated user: {}", credentials.getUsername());
+                return LoginResult.SUCCESS;
+            } catch (LoginException e) {
+                log.debug("Invalid credentials for username '{}'", credentials.getUsername());
+                getMetrics().authFailure();
+                return LoginResult.REJECTED;
+            } catch (RepositoryException e) {
+                log.debug("Repository {} failed", repository.getAddress(), e);
+            } finally {
+                closeSession(session);
             }
-            return Status.OK;
-        } finally {
-            closeSession(session);
         }
+        // the circuit breakers log when a repository becomes unavailable, not for every request
+        log.debug("No repository available to authenticate user '{}'", credentials.getUsername());
+        getMetrics().authError();
+        return LoginResult.UNAVAILABLE;
     }
 
     private void closeSession(Session session) {
@@ -118,36 +353,11 @@ public class IpFilter extends BaseIpFilter {
         return SYSTEM_PROPERTY_DISABLED;
     }
 
-    private Session getSession(final UserCredentials credentials) {
-        HippoRepository hippoRepository = getHippoRepository(primaryRepositoryAddress);
-        if (hippoRepository == null) {
-            hippoRepository = getHippoRepository(secondaryRepositoryAddress);
-            if (hippoRepository == null) {
-                log.warn("Both primary:{} and secondary: {} repository addresses failed", primaryRepositoryAddress, secondaryRepositoryAddress);
-                return null;
-            }
-        }
-        try {
-            return hippoRepository.login(credentials.getUsername(), credentials.getPassword().toCharArray());
-        } catch (LoginException e) {
-            log.debug("Invalid credentials for username '{}'", credentials.getUsername());
-            return null;
-        } catch (RepositoryException e) {
-            log.error("Error during authentication", e);
-            return null;
-        }
-    }
-
-    private HippoRepository getHippoRepository(final String address) {
-        if (address == null || address.length() == 0) {
-            log.warn("Repository address parameter {} not set. Unable to perform authorization. Return unauthorized.", IpFilterConstants.REPOSITORY_ADDRESS_PARAM);
-            return null;
-        }
-        try {
-            return HippoRepositoryFactory.getHippoRepository(address);
-        } catch (RepositoryException e) {
-            log.error("Error while obtaining repository: ", e);
-            return null;
-        }
+    /**
+     * Look up the repository at an address. The result is kept until a login fails with anything else than invalid
+     * credentials.
+     */
+    protected HippoRepository resolveRepository(final String address) throws RepositoryException {
+        return HippoRepositoryFactory.getHippoRepository(address);
     }
 }
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2026 Bloomreach
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onehippo.forge.ipfilter.hst;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.jcr.LoginException;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+
+import org.hippoecm.repository.HippoRepository;
+import org.onehippo.forge.ipfilter.common.CircuitBreaker;
+
+/**
+ * Repository address with its resolved repository, kept until it fails, and a circuit breaker so an unavailable
+ * repository isn't looked up again for every request.
+ */
+final class RepositoryEndpoint {
+
+    @FunctionalInterface
+    interface Resolver {
+        HippoRepository resolve(String address) throws RepositoryException;
+    }
+
+    private final String address;
+    private final Resolver resolver;
+    private final CircuitBreaker circuitBreaker;
+    private volatile HippoRepository repository;
+
+    RepositoryEndpoint(final String address, final Resolver resolver, final int failureThreshold,
+                       final int retrySeconds) {
+        this.address = address;
+        this.resolver = resolver;
+        this.circuitBreaker = new CircuitBreaker("Repository " + address, failureThreshold, retrySeconds,
+                TimeUnit.SECONDS);
+    }
+
+    /**
+     * @return TRUE if the repository may be tried, in which case {@link #login(String, char[])} must follow
+     */
+    boolean isAvailable() {
+        return circuitBreaker.allowRequest();
+    }
+
+    /**
+     * @throws LoginException      for invalid credentials, the repository itself is fine
+     * @throws RepositoryException if the repository is unavailable
+     */
+    Session login(final String username, final char[] password) throws RepositoryException {
+        try {
+            HippoRepository hippoRepository = repository;
+            if (hippoRepository == null) {
+                hippoRepository = resolver.resolve(address);
+                if (hippoRepository == null) {
+                    throw new RepositoryException("No repository found at " + address);
+                }
+                repository = hippoRepository;
+            }
+            final Session session = hippoRepository.login(username, password);
+            circuitBreaker.onSuccess();
+            return session;
+        } catch (LoginException e) {
+            circuitBreaker.onSuccess();
+            throw e;
+        } catch (RepositoryException | RuntimeException e) {
+            // look it up again on the next try
+            repository = null;
+            circuitBreaker.onFailure();
+            throw e;
+        }
+    }
+
+    String getAddress() {
+        return address;
+    }
+
+    CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+}
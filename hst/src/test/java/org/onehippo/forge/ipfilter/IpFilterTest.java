@@ -1,5 +1,5 @@
 /*
- * Copyright 2017-2020 Bloomreach
+ * Copyright 2017-2026 Bloomreach
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -15,11 +15,109 @@
  */
 package org.onehippo.forge.ipfilter;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import javax.jcr.LoginException;
+import javax.jcr.RepositoryException;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import org.hippoecm.repository.HippoRepository;
+import org.junit.After;
+import org.junit.Before;
 import org.junit.Test;
+import org.onehippo.forge.ipfilter.common.AuthObject;
+import org.onehippo.forge.ipfilter.common.IpFilterConstants;
+import org.onehippo.forge.ipfilter.common.ServletMocks;
+import org.onehippo.forge.ipfilter.common.Status;
+import org.onehippo.forge.ipfilter.hst.IpFilter;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.anyString;
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.junit.Assert.assertEquals;
 
 public class IpFilterTest {
 
+    private final AuthObject authObject = AuthObject.builder().hosts(ImmutableSet.of("localhost"))
+            .ranges(ImmutableSet.of("127.0.0.1")).cacheEnabled(false).build();
+    private final TestIpFilter filter = new TestIpFilter();
+
+    @Before
+    public void setUp() throws Exception {
+        filter.init(ServletMocks.filterConfig(ImmutableMap.of(
+                IpFilterConstants.THROTTLE_BURST_PARAM, "2",
+                IpFilterConstants.THROTTLE_RATE_PARAM, "1")));
+    }
+
+    @After
+    public void tearDown() {
+        filter.destroy();
+    }
+
     @Test
-    public void test() throws Exception {
+    public void testUnparseableForwardedForIsThrottled() {
+        final HttpServletRequest request = request("x", "10.0.0.1");
+        assertEquals(Status.UNAUTHORIZED, filter.authenticate(request));
+        assertEquals(Status.UNAUTHORIZED, filter.authenticate(request));
+        assertEquals(Status.TOO_MANY_REQUESTS, filter.authenticate(request));
+        // another bogus header from the same remote address doesn't get a new bucket
+        assertEquals(Status.TOO_MANY_REQUESTS, filter.authenticate(request("y", "10.0.0.1")));
+        assertEquals(Status.UNAUTHORIZED, filter.authenticate(request("x", "10.0.0.2")));
+    }
+
+    @Test
+    public void testUnparseableClientsShareOneBucket() {
+        assertEquals(Status.UNAUTHORIZED, filter.authenticate(request("x", "unknown")));
+        assertEquals(Status.UNAUTHORIZED, filter.authenticate(request("y", null)));
+        assertEquals(Status.TOO_MANY_REQUESTS, filter.authenticate(request("z", "")));
+        assertEquals(Status.UNAUTHORIZED, filter.authenticate(request("10.0.0.3", "unknown")));
+    }
+
+    @Test
+    public void testUnavailableRepositoryIsNotThrottled() {
+        filter.failure = new RepositoryException("Repository down");
+        for (int i = 0; i < 5; i++) {
+            assertEquals(Status.UNAUTHORIZED, filter.authenticate(request("10.0.0.4", "10.0.0.1")));
+        }
+        assertEquals(0, filter.getThrottledCount());
+    }
+
+    private static HttpServletRequest request(final String forwardedFor, final String remoteAddr) {
+        final HttpServletRequest request = createNiceMock(HttpServletRequest.class);
+        expect(request.getHeader(IpFilterConstants.HEADER_AUTHORIZATION)).andReturn("Basic " + Base64.getEncoder()
+                .encodeToString("admin:guess".getBytes(StandardCharsets.UTF_8))).anyTimes();
+        expect(request.getHeader(IpFilterConstants.HEADER_X_FORWARDED_FOR)).andReturn(forwardedFor).anyTimes();
+        expect(request.getRemoteAddr()).andReturn(remoteAddr).anyTimes();
+        replay(request);
+        return request;
+    }
+
+    /**
+     * Filter with a repository failing every login with the given exception, rejecting the credentials by default.
+     */
+    private final class TestIpFilter extends IpFilter {
+
+        private volatile RepositoryException failure = new LoginException("Invalid credentials");
+
+        private Status authenticate(final HttpServletRequest request) {
+            return authenticate(authObject, request);
+        }
+
+        @Override
+        protected HippoRepository resolveRepository(final String address) throws RepositoryException {
+            final HippoRepository repository = createNiceMock(HippoRepository.class);
+            expect(repository.login(anyString(), anyObject(char[].class))).andAnswer(() -> {
+                throw failure;
+            }).anyTimes();
+            replay(repository);
+            return repository;
+        }
     }
 }